@@ -0,0 +1,7 @@
+#!/bin/sh
+# Launches the REPL with the class data archive written by the cds profile's training run.
+# The archive only matches the JDK and jars it was created with; -XX:+AutoCreateSharedArchive rewrites it on exit
+# whenever it does not, so a moved install or a JDK update costs one slower launch instead of failing.
+dir=$(cd "$(dirname "$0")" && pwd)
+exec "${JAVA:-java}" -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile="$dir/cljt.jsa" $JAVA_OPTS \
+    -jar "$dir/cljt.jar" "$@"
@@ -0,0 +1,43 @@
+#!/bin/sh
+# Compares startup with and without class data sharing, using the startup probe, which exits once the Clojure runtime
+# and the completion index are ready:
+#   off      -Xshare:off, every class is loaded and verified from the jars
+#   default  the JDK's own archive of its classes only
+#   archived the application archive written by the cds profile's training run
+# Usage: startup-bench.sh [runs]   (from the build directory, after mvn -Pcds package)
+runs=${1:-5}
+dir=$(cd "$(dirname "$0")" && pwd)
+java=${JAVA:-java}
+if [ ! -f "$dir/cljt.jsa" ]; then
+    echo "No archive at $dir/cljt.jsa, build it with mvn -Pcds package" >&2
+    exit 1
+fi
+
+for mode in off default archived; do
+    case $mode in
+        off) share="-Xshare:off" ;;
+        default) share="-Xshare:auto" ;;
+        archived) share="-XX:SharedArchiveFile=$dir/cljt.jsa" ;;
+    esac
+    i=0
+    while [ $i -lt "$runs" ]; do
+        start=$(date +%s%N)
+        probe=$("$java" $share -Dcljt.startupProbe=true -jar "$dir/cljt.jar" 2>/dev/null </dev/null)
+        end=$(date +%s%N)
+        echo "$mode $(( (end - start) / 1000000 )) $probe"
+        i=$((i + 1))
+    done
+done | awk '
+    {
+        sub(/prompt=/, "", $4); sub(/ms/, "", $4)
+        sub(/ready=/, "", $5); sub(/ms/, "", $5)
+        n[$1]++; wall[$1] += $2; prompt[$1] += $4; ready[$1] += $5
+        if (!($1 in seen)) { seen[$1] = 1; order[++modes] = $1 }
+    }
+    END {
+        printf "%-9s %6s %12s %12s %12s\n", "mode", "runs", "prompt (ms)", "ready (ms)", "exit (ms)"
+        for (i = 1; i <= modes; i++) {
+            m = order[i]
+            printf "%-9s %6d %12.0f %12.0f %12.0f\n", m, n[m], prompt[m] / n[m], ready[m] / n[m], wall[m] / n[m]
+        }
+    }'
@@ -0,0 +1,84 @@
+package org.poa.cljt;
+
+import clojure.lang.Namespace;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import clojure.lang.Var;
+import org.jline.reader.Candidate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares apropos-based candidates against the symbol index, with only the Clojure namespaces loaded and with
+ * a few hundred extra namespaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompleteBenchmark {
+    private static final Var REQUIRE = RT.var("clojure.core", "require");
+
+    @Param({"small", "large"})
+    public String namespaces;
+
+    @Param({"map"})
+    public String prefix;
+
+    private final List<Namespace> created = new ArrayList<>();
+    private CljCompleter completer;
+
+    @Setup
+    public void setup() {
+        RT.init();
+        CljCompleter.requireDeps(REQUIRE);
+        if (namespaces.equals("large")) {
+            for (int i = 0; i < 300; i++) {
+                var ns = Namespace.findOrCreate(Symbol.intern("bench.generated.ns" + i));
+                for (int j = 0; j < 50; j++) {
+                    Var.intern(ns, Symbol.intern((j % 5 == 0 ? "map-thing-" : "var-") + j), j);
+                }
+                created.add(ns);
+            }
+        }
+        completer = new CljCompleter();
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (var ns : created) {
+            Namespace.remove(ns.getName());
+        }
+        created.clear();
+    }
+
+    @Benchmark
+    public List<Candidate> apropos() {
+        var out = new ArrayList<Candidate>();
+        completer.aproposCandidates(prefix, out);
+        return out;
+    }
+
+    @Benchmark
+    public List<Candidate> index() {
+        var out = new ArrayList<Candidate>();
+        completer.getIndex().complete(prefix, out);
+        return out;
+    }
+}
@@ -0,0 +1,57 @@
+package org.poa.cljt;
+
+import org.jline.utils.AttributedString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.poa.cljt.lex.Corpus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redraws of a 2000 line buffer while a character is typed and deleted again in the middle of it, against
+ * highlighting the same buffer from scratch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HighlightBenchmark {
+    private final CljHighlighter highlighter = new CljHighlighter();
+    private String original;
+    private String edited;
+    private boolean toggle;
+
+    @Setup
+    public void setup() {
+        var sb = new StringBuilder();
+        var lines = Corpus.source(1 << 20).split("\n");
+        for (int i = 0; i < 2000; i++) {
+            sb.append(lines[i]).append('\n');
+        }
+        original = sb.toString();
+        int middle = original.indexOf('(', original.length() / 2);
+        edited = original.substring(0, middle + 1) + "x" + original.substring(middle + 1);
+        highlighter.highlight(null, original);
+    }
+
+    @Benchmark
+    public AttributedString keystroke() {
+        toggle = !toggle;
+        return highlighter.highlight(null, toggle ? edited : original);
+    }
+
+    @Benchmark
+    public AttributedString fromScratch() {
+        return new CljHighlighter().highlight(null, original);
+    }
+}
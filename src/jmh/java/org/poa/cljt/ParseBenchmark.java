@@ -0,0 +1,59 @@
+package org.poa.cljt;
+
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a multi-line form the way the line reader does on completion, with the cursor at several positions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    private static final String LINE = """
+            (defn frobnicate
+              "Frobnicates xs, see also (doc frobnicate)."
+              [{:keys [a b] :or {a 1}} & more]
+              (let [xs (map #(* % 2) (range a b))
+                    m {:name "naive" :ratio 22/7 :hex 0xFF :char \\space}]
+                (when-not (empty? more)
+                  (reduce + 0.5e3 (concat xs more)))
+                `(~@xs ~'sym @(atom -42) #{:a :b})))""";
+
+    @Param({"start", "middle", "end"})
+    public String cursor;
+
+    private final CljParser parser = new CljParser();
+    private int position;
+
+    @Setup
+    public void setup() {
+        position = switch (cursor) {
+            case "start" -> 3;
+            case "middle" -> LINE.indexOf("range") + 3;
+            case "end" -> LINE.length();
+            default -> throw new IllegalArgumentException(cursor);
+        };
+    }
+
+    @Benchmark
+    public ParsedLine complete() {
+        return parser.parse(LINE, position, Parser.ParseContext.COMPLETE);
+    }
+}
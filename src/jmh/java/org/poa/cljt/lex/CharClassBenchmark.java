@@ -0,0 +1,102 @@
+package org.poa.cljt.lex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the character class table against the {@link Character} predicate chains it replaced, on their own and
+ * inside the full scanning loops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharClassBenchmark {
+    @Param({"1048576"})
+    public int size;
+
+    private static final boolean[] MACRO_CHARS = new boolean[256];
+
+    static {
+        for (char ch : "\";'@^`~()[]{}\\%#".toCharArray()) {
+            MACRO_CHARS[ch] = true;
+        }
+    }
+
+    private String source;
+    private char[] chars;
+
+    @Setup
+    public void setup() {
+        source = Corpus.source(size);
+        chars = source.toCharArray();
+    }
+
+    /**
+     * The checks as they were before the table, kept here as the baseline.
+     */
+    private static boolean characterBasicTerminal(int ch) {
+        return ch == -1 || ch == ',' || Character.isWhitespace(ch)
+                || (!Character.isDigit(ch) && ch != '+' && ch != '-' && ch < MACRO_CHARS.length && MACRO_CHARS[ch]);
+    }
+
+    @Benchmark
+    public int basicTerminalCharacter() {
+        int count = 0;
+        for (char ch : chars) {
+            if (characterBasicTerminal(ch)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int basicTerminalTable() {
+        int count = 0;
+        for (char ch : chars) {
+            if (IncrementalTokenReader.isBasicTerminal(ch)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int scanner() {
+        var scanner = new IncrementalTokenScanner(source);
+        int count = 0;
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public void reader(Blackhole bh) throws IOException {
+        var reader = new PushbackReader(new StringReader(source));
+        var tokenReader = new IncrementalTokenReader();
+        IncrementalToken token;
+        do {
+            token = tokenReader.readToken(reader);
+            bh.consume(token);
+        } while (token.kind() != IncrementalToken.Kind.EOF);
+    }
+}
@@ -0,0 +1,103 @@
+package org.poa.cljt.lex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Synthetic inputs for the lexer benchmarks.
+ */
+public final class Corpus {
+    private static final String SOURCE = """
+            (ns example.core
+              "A namespace docstring, with some punctuation: (a [b] {c})."
+              (:require [clojure.string :as str]
+                        [clojure.set :refer [union]]))
+
+            ;; Comments are common in real sources, λ included
+            (defn ^:private frobnicate
+              [{:keys [a b] :or {a 1}} & more]
+              (let [xs (map #(* % 2) (range a b))
+                    m {:name "naïve" :ratio 22/7 :hex 0xFF :char \\space}]
+                (when-not (empty? more)
+                  (reduce + 0.5e3 (concat xs more)))
+                `(~@xs ~'sym @(atom -42) #{:a :b})))
+
+            """;
+
+    private Corpus() {
+    }
+
+    /**
+     * @return Clojure source of at least {@code size} characters, built by repeating a representative snippet
+     */
+    public static String source(int size) {
+        var sb = new StringBuilder(size + SOURCE.length());
+        while (sb.length() < size) {
+            sb.append(SOURCE);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The source of clojure.core, from the Clojure jar on the classpath
+     */
+    public static String clojureCore() {
+        try (InputStream in = Corpus.class.getClassLoader().getResourceAsStream("clojure/core.clj")) {
+            if (in == null) {
+                throw new IllegalStateException("clojure/core.clj not on the classpath");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return A vector of string literals, each {@code length} characters long with some escapes, of at least
+     * {@code size} characters in total
+     */
+    public static String longStrings(int size, int length) {
+        var literal = new StringBuilder("\"");
+        while (literal.length() < length) {
+            literal.append(literal.length() % 64 == 0 ? "\\\"" : "lorem ipsum ");
+        }
+        literal.append("\"\n");
+
+        var sb = new StringBuilder(size + literal.length()).append('[');
+        while (sb.length() < size) {
+            sb.append(literal);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * @return Forms nested {@code depth} deep, alternating lists, vectors and maps, repeated to at least
+     * {@code size} characters
+     */
+    public static String deepNesting(int size, int depth) {
+        var form = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            form.append(switch (i % 3) {
+                case 0 -> "(f ";
+                case 1 -> "[x ";
+                default -> "{:k ";
+            });
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            form.append(switch (i % 3) {
+                case 0 -> ")";
+                case 1 -> "]";
+                default -> "}";
+            });
+        }
+        form.append('\n');
+
+        var sb = new StringBuilder(size + form.length());
+        while (sb.length() < size) {
+            sb.append(form);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package org.poa.cljt.lex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizes a large source serially and with {@link ParallelTokenizer} on pools of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelTokenizeBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private String source;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        source = Corpus.source(32 << 20);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public TokenSpans serial() {
+        var spans = new TokenSpans(source.length() / 4);
+        var scanner = new IncrementalTokenScanner(source);
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            spans.add(scanner);
+        }
+        return spans;
+    }
+
+    @Benchmark
+    public TokenSpans parallel() {
+        int chunk = Math.max(ParallelTokenizer.MIN_CHUNK, source.length() / (threads * 4));
+        return ParallelTokenizer.tokenize(source, pool, chunk);
+    }
+}
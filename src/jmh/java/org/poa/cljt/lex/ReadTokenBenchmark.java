@@ -0,0 +1,66 @@
+package org.poa.cljt.lex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizes whole corpora with {@link IncrementalTokenReader#readToken}, and with the scanner for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadTokenBenchmark {
+    @Param({"core", "strings", "nested"})
+    public String corpus;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = switch (corpus) {
+            case "core" -> Corpus.clojureCore();
+            case "strings" -> Corpus.longStrings(1 << 20, 4096);
+            case "nested" -> Corpus.deepNesting(1 << 20, 256);
+            default -> throw new IllegalArgumentException(corpus);
+        };
+    }
+
+    @Benchmark
+    public void readToken(Blackhole bh) throws IOException {
+        var reader = new PushbackReader(new StringReader(source));
+        var tokenReader = new IncrementalTokenReader();
+        IncrementalToken token;
+        do {
+            token = tokenReader.readToken(reader);
+            bh.consume(token);
+        } while (token.kind() != IncrementalToken.Kind.EOF);
+    }
+
+    @Benchmark
+    public int scan() {
+        var scanner = new IncrementalTokenScanner(source);
+        int count = 0;
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,85 @@
+package org.poa.cljt;
+
+import org.jline.reader.LineReader;
+import org.jline.utils.NonBlockingReader;
+import org.poa.cljt.lex.BracketIndex;
+import org.poa.cljt.lex.IncrementalLexer;
+
+import java.io.IOException;
+
+/**
+ * Replaces JLine's close bracket widgets with ones that find the matching bracket through a {@link BracketIndex}.
+ * <p>
+ * JLine's own widgets scan backwards character by character and are fooled by brackets in strings, comments and
+ * character literals. These keep the buffer's tokens and brackets up to date across key presses, so finding the
+ * partner is a lookup. As with JLine, the cursor rests on the partner for {@link LineReader#BLINK_MATCHING_PAREN}
+ * milliseconds, or until the next key press.
+ */
+public class BlinkMatchingParen {
+    private static final long DEFAULT_BLINK_MILLIS = 500;
+
+    private final LineReader reader;
+    private final IncrementalLexer lexer = new IncrementalLexer();
+    private final BracketIndex brackets = BracketIndex.of(lexer);
+
+    BlinkMatchingParen(LineReader reader) {
+        this.reader = reader;
+    }
+
+    public static void install(LineReader reader) {
+        var blink = new BlinkMatchingParen(reader);
+        var widgets = reader.getWidgets();
+        widgets.put(LineReader.INSERT_CLOSE_PAREN, () -> blink.insertClose(")"));
+        widgets.put(LineReader.INSERT_CLOSE_SQUARE, () -> blink.insertClose("]"));
+        widgets.put(LineReader.INSERT_CLOSE_CURLY, () -> blink.insertClose("}"));
+    }
+
+    private long blinkMillis() {
+        return switch (reader.getVariable(LineReader.BLINK_MATCHING_PAREN)) {
+            case Number number -> number.longValue();
+            case String string -> {
+                try {
+                    yield Long.parseLong(string.trim());
+                } catch (NumberFormatException e) {
+                    yield DEFAULT_BLINK_MILLIS;
+                }
+            }
+            case null, default -> DEFAULT_BLINK_MILLIS;
+        };
+    }
+
+    /**
+     * @return The offset of the bracket matching the one at {@code offset} in {@code text}, or -1
+     */
+    int matchingOffset(String text, int offset) {
+        if (lexer.update(text)) {
+            brackets.update(lexer);
+        }
+        return brackets.matchingOffset(offset);
+    }
+
+    private boolean insertClose(String close) {
+        var buffer = reader.getBuffer();
+        buffer.write(close);
+        long millis = blinkMillis();
+        if (millis <= 0) {
+            return true;
+        }
+
+        int cursor = buffer.cursor();
+        int partner = matchingOffset(buffer.toString(), cursor - 1);
+        if (partner < 0) {
+            return true;
+        }
+        buffer.cursor(partner);
+        reader.callWidget(LineReader.REDISPLAY);
+        try {
+            NonBlockingReader input = reader.getTerminal().reader();
+            input.peek(millis);
+        } catch (IOException e) {
+            // Only the blink is cut short
+        }
+        buffer.cursor(cursor);
+        return true;
+    }
+}
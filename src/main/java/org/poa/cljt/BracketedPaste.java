@@ -0,0 +1,42 @@
+package org.poa.cljt;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.impl.LineReaderImpl;
+
+/**
+ * Replaces JLine's bracketed paste widget with one that evaluates a pasted payload ending in a line break as if Enter
+ * had been pressed after it.
+ * <p>
+ * Terminals that support bracketed paste send the payload between two escape sequences. JLine reads it as a whole
+ * and inserts it in one edit, so the widgets bound to its characters never run: line breaks do not accept, and nothing
+ * is completed or described. The buffer is highlighted once, in the redraw after the paste, by a single lexing pass
+ * over the inserted text. The line break a pasted form ends with is then taken as Enter, so the parser tokenizes the
+ * buffer once to tell complete forms, which are accepted, from incomplete ones, which are left to be finished on a
+ * continuation line. A payload that does not end in a line break, or is pasted before the end of the buffer, is only
+ * inserted.
+ */
+public class BracketedPaste {
+    private final LineReaderImpl reader;
+
+    BracketedPaste(LineReaderImpl reader) {
+        this.reader = reader;
+    }
+
+    public static void install(LineReader reader) {
+        if (reader instanceof LineReaderImpl impl) {
+            var paste = new BracketedPaste(impl);
+            reader.getWidgets().put(LineReader.BEGIN_PASTE, paste::paste);
+        }
+    }
+
+    private boolean paste() {
+        var buffer = reader.getBuffer();
+        reader.beginPaste();
+        int length = buffer.length();
+        if (buffer.cursor() == length && length > 0 && buffer.atChar(length - 1) == '\n') {
+            buffer.backspace();
+            reader.callWidget(LineReader.ACCEPT_LINE);
+        }
+        return true;
+    }
+}
@@ -6,16 +6,83 @@ import org.jline.reader.Candidate;
 import org.jline.reader.Completer;
 import org.jline.reader.LineReader;
 import org.jline.reader.ParsedLine;
+import org.poa.cljt.complete.CompletionContext;
+import org.poa.cljt.complete.FuzzyMatcher;
+import org.poa.cljt.complete.JavaMembers;
+import org.poa.cljt.complete.KeywordIndex;
+import org.poa.cljt.complete.SymbolIndex;
+import org.poa.cljt.metrics.Metrics;
+import org.poa.cljt.metrics.Stage;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class CljCompleter implements Completer {
     final static private Symbol CLOJURE_REPL = Symbol.intern("clojure.repl");
 
     final static private Var APROPOS = RT.var("clojure.repl", "apropos");
 
+    /**
+     * The maximum number of fuzzy matches offered in addition to the prefix matches.
+     */
+    public static final int FUZZY_LIMIT = 64;
+
+    private static final String[] SPECIAL_FORMS = specialForms();
+
+    private final SymbolIndex index;
+    private final KeywordIndex keywords;
+    private final JavaMembers javaMembers = new JavaMembers();
+    private final Supplier<Namespace> currentNs;
+
+    public CljCompleter() {
+        this(new SymbolIndex());
+    }
+
+    public CljCompleter(SymbolIndex index) {
+        this(index, () -> (Namespace) RT.CURRENT_NS.deref());
+    }
+
+    /**
+     * @param currentNs supplies the namespace that aliases, imports and {@code ::keywords} are resolved in
+     */
+    public CljCompleter(SymbolIndex index, Supplier<Namespace> currentNs) {
+        this(index, new KeywordIndex(), currentNs);
+    }
+
+    private CljCompleter(SymbolIndex index, KeywordIndex keywords, Supplier<Namespace> currentNs) {
+        this.index = index;
+        this.keywords = keywords;
+        this.currentNs = currentNs;
+    }
+
+    /**
+     * @return A completer that shares this one's symbol and keyword indexes, but resolves aliases, imports and
+     * {@code ::keywords} in another namespace, e.g. that of another REPL session
+     */
+    public CljCompleter withNamespace(Supplier<Namespace> currentNs) {
+        return new CljCompleter(index, keywords, currentNs);
+    }
+
+    private static String[] specialForms() {
+        var names = new ArrayList<String>();
+        for (ISeq seq = RT.keys(Compiler.specials); seq != null; seq = seq.next()) {
+            var name = ((Symbol) seq.first()).getName();
+            if (!name.equals("&")) {
+                names.add(name);
+            }
+        }
+        var out = names.toArray(new String[0]);
+        Arrays.sort(out);
+        return out;
+    }
+
+    public SymbolIndex getIndex() {
+        return index;
+    }
+
     public static void requireDeps(@NotNull IFn requireFn) {
         requireFn.invoke(CLOJURE_REPL);
     }
@@ -49,6 +116,168 @@ public class CljCompleter implements Completer {
 
     @Override
     public void complete(LineReader lineReader, ParsedLine parsedLine, List<Candidate> list) {
-        aproposCandidates(parsedLine.word(), list);
+        long start = Metrics.start();
+        try {
+            completeContext(parsedLine, list);
+        } finally {
+            Metrics.record(Stage.COMPLETE, start, parsedLine.line().length());
+        }
+    }
+
+    private void completeContext(ParsedLine parsedLine, List<Candidate> list) {
+        var context = CompletionContext.classify(parsedLine.line(), parsedLine.cursor());
+        var ns = currentNs.get();
+        switch (context.kind()) {
+            case NONE -> {
+            }
+            case KEYWORD -> completeKeyword(context.word(), ns, list);
+            case NAMESPACE -> addRanked(context.prefix(), namespaceNames(), "", "namespace", list);
+            case QUALIFIED -> completeQualified(context, ns, list);
+            case JAVA_STATIC -> {
+                var type = JavaMembers.resolve(ns, context.qualifier());
+                if (type != null) {
+                    addRanked(context.prefix(), javaMembers.staticMembers(type), context.qualifier() + "/",
+                            type.getName(), list);
+                }
+            }
+            case JAVA_METHOD -> {
+                if (ns != null) {
+                    addRanked(context.prefix(), javaMembers.importedMethods(ns), ".", "Java", list);
+                }
+            }
+            case FUNCTION -> {
+                addRanked(context.prefix(), SPECIAL_FORMS, "", "special form", list);
+                completeAliases(context.prefix(), ns, list);
+                completeSymbol(context.prefix(), list);
+            }
+            case SYMBOL -> {
+                completeAliases(context.prefix(), ns, list);
+                completeSymbol(context.prefix(), list);
+            }
+        }
+    }
+
+    private void completeSymbol(String word, List<Candidate> list) {
+        var snapshot = index.refresh();
+        int prefixStart = snapshot.lowerBound(word);
+        snapshot.prefixMatches(word, list);
+        if (word.length() < 2) {
+            return;
+        }
+
+        // Fuzzy ranking is the slow part, skip it when running as a cancelled background completion
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        int prefixEnd = snapshot.lowerBound(word + Character.MAX_VALUE);
+        var names = snapshot.names();
+        var candidates = snapshot.candidates();
+        var fuzzy = new FuzzyMatcher(FUZZY_LIMIT);
+        int found = fuzzy.select(word, names);
+        for (int rank = 0; rank < found; rank++) {
+            int idx = fuzzy.index(rank);
+            if (idx >= prefixStart && idx < prefixEnd) {
+                continue;
+            }
+            var c = candidates[idx];
+            list.add(new Candidate(c.value(), c.displ(), c.group(), c.descr(), c.suffix(), c.key(), c.complete(),
+                    rank + 1));
+        }
+    }
+
+    /**
+     * Offer {@code alias/} for the aliases of the current namespace, as an incomplete candidate to keep typing after.
+     */
+    private static void completeAliases(String prefix, Namespace ns, List<Candidate> list) {
+        if (ns == null) {
+            return;
+        }
+        for (ISeq seq = RT.keys(ns.getAliases()); seq != null; seq = seq.next()) {
+            var alias = ((Symbol) seq.first()).getName();
+            if (alias.startsWith(prefix)) {
+                list.add(new Candidate(alias + "/", alias + "/", "alias", null, null, null, false));
+            }
+        }
+    }
+
+    private void completeQualified(CompletionContext context, Namespace ns, List<Candidate> list) {
+        var qualifier = Symbol.intern(context.qualifier());
+        var target = ns == null ? null : ns.lookupAlias(qualifier);
+        if (target == null) {
+            target = Namespace.find(qualifier);
+        }
+        if (target == null) {
+            return;
+        }
+        index.refresh();
+        var candidates = index.namespaceCandidates(target);
+        var names = new String[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            names[i] = candidates[i].value();
+        }
+        Arrays.sort(names);
+        addRanked(context.prefix(), names, context.qualifier() + "/", target.getName().getName(), list);
+    }
+
+    /**
+     * Complete keywords, resolving {@code ::name} against the current namespace.
+     */
+    private void completeKeyword(String word, Namespace ns, List<Candidate> list) {
+        var names = keywords.names();
+        if (!word.startsWith("::")) {
+            addRanked(word, names, "", "keyword", list);
+            return;
+        }
+        if (ns == null) {
+            return;
+        }
+        // Collect the current namespace's keywords, which sort together, with the auto-resolving prefix stripped
+        var nsPrefix = ":" + ns.getName().getName() + "/";
+        int from = Arrays.binarySearch(names, nsPrefix);
+        from = from < 0 ? -(from + 1) : from;
+        var local = new ArrayList<String>();
+        for (int i = from; i < names.length && names[i].startsWith(nsPrefix); i++) {
+            local.add(names[i].substring(nsPrefix.length()));
+        }
+        addRanked(word.substring(2), local.toArray(new String[0]), "::", "keyword", list);
+    }
+
+    private static String[] namespaceNames() {
+        var names = new ArrayList<String>();
+        for (ISeq seq = Namespace.all(); seq != null; seq = seq.next()) {
+            names.add(((Namespace) seq.first()).getName().getName());
+        }
+        var out = names.toArray(new String[0]);
+        Arrays.sort(out);
+        return out;
+    }
+
+    /**
+     * Add the names that start with {@code prefix}, then the best fuzzy matches among the rest.
+     *
+     * @param names       the names to match, sorted so that ties rank alphabetically
+     * @param valuePrefix prepended to each name to form the candidate value that replaces the word
+     */
+    private static void addRanked(String prefix, String[] names, String valuePrefix, String group,
+                                  List<Candidate> list) {
+        for (var name : names) {
+            if (name.startsWith(prefix)) {
+                var value = valuePrefix + name;
+                list.add(new Candidate(value, value, group, null, null, null, true));
+            }
+        }
+        if (prefix.length() < 2 || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        var fuzzy = new FuzzyMatcher(FUZZY_LIMIT);
+        int found = fuzzy.select(prefix, names);
+        for (int rank = 0; rank < found; rank++) {
+            var name = names[fuzzy.index(rank)];
+            if (name.startsWith(prefix)) {
+                continue;
+            }
+            var value = valuePrefix + name;
+            list.add(new Candidate(value, value, group, null, null, null, true, rank + 1));
+        }
     }
 }
@@ -0,0 +1,185 @@
+package org.poa.cljt;
+
+import org.jline.reader.Highlighter;
+import org.jline.reader.LineReader;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStringBuilder;
+import org.jline.utils.AttributedStyle;
+import org.poa.cljt.lex.BracketIndex;
+import org.poa.cljt.lex.IncrementalLexer;
+import org.poa.cljt.lex.IncrementalToken;
+import org.poa.cljt.metrics.Metrics;
+import org.poa.cljt.metrics.Stage;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Highlights the line buffer by token kind.
+ * <p>
+ * The token spans are kept in an {@link IncrementalLexer} between redraws. JLine only hands over the new buffer, so
+ * the edit is recovered by diffing it against the previous one and only the lines around it are re-lexed. Brackets are
+ * colored by depth from a {@link BracketIndex} that is updated from the same re-lexed range. An unchanged buffer
+ * returns the previous result as is. The builder is reused across redraws, and its styled text is kept up to the first
+ * token whose style may have changed, so only the rest of the buffer is styled again.
+ */
+public class CljHighlighter implements Highlighter {
+    private static final AttributedStyle KEYWORD = AttributedStyle.DEFAULT.foreground(AttributedStyle.BLUE);
+    private static final AttributedStyle CONSTANT = AttributedStyle.DEFAULT.foreground(AttributedStyle.CYAN);
+    private static final AttributedStyle ERROR = AttributedStyle.DEFAULT.foreground(AttributedStyle.RED);
+    private static final AttributedStyle[] RAINBOW = {
+            AttributedStyle.DEFAULT.foreground(AttributedStyle.YELLOW),
+            AttributedStyle.DEFAULT.foreground(AttributedStyle.MAGENTA),
+            AttributedStyle.DEFAULT.foreground(AttributedStyle.CYAN),
+            AttributedStyle.DEFAULT.foreground(AttributedStyle.GREEN),
+            AttributedStyle.DEFAULT.foreground(AttributedStyle.BLUE),
+    };
+
+    private final Map<IncrementalToken.Kind, AttributedStyle> styles;
+    private final IncrementalLexer lexer = new IncrementalLexer();
+    private final BracketIndex brackets = BracketIndex.of(lexer);
+    private final AttributedStringBuilder builder = new AttributedStringBuilder();
+
+    private AttributedString lastResult;
+    private Pattern errorPattern;
+    private int errorIndex = -1;
+
+    public CljHighlighter() {
+        this(defaultStyles());
+    }
+
+    public CljHighlighter(Map<IncrementalToken.Kind, AttributedStyle> styles) {
+        this.styles = new EnumMap<>(styles);
+    }
+
+    public static Map<IncrementalToken.Kind, AttributedStyle> defaultStyles() {
+        var styles = new EnumMap<IncrementalToken.Kind, AttributedStyle>(IncrementalToken.Kind.class);
+        var prefix = AttributedStyle.DEFAULT.foreground(AttributedStyle.MAGENTA);
+        for (var kind : IncrementalToken.Kind.values()) {
+            styles.put(kind, switch (kind) {
+                case STRING -> AttributedStyle.DEFAULT.foreground(AttributedStyle.GREEN);
+                case NUMBER, CHARACTER -> CONSTANT;
+                case COMMENT -> AttributedStyle.DEFAULT.foreground(AttributedStyle.BRIGHT).faint();
+                case QUOTE, UNQUOTE, DEREF, META, SYNTAX_QUOTE, DISPATCH, ARG -> prefix;
+                case UNKNOWN -> ERROR;
+                default -> AttributedStyle.DEFAULT;
+            });
+        }
+        return styles;
+    }
+
+    /**
+     * Symbols share one token kind, so keywords and the literal constants are told apart by their text.
+     */
+    private AttributedStyle styleOf(IncrementalToken.Kind kind, boolean complete, String buffer, int start, int end) {
+        // An invalid number literal is marked once it is no longer being typed at the end of the buffer
+        if (kind == IncrementalToken.Kind.NUMBER && !complete && end < buffer.length()) {
+            return ERROR;
+        }
+        if (kind == IncrementalToken.Kind.TOKEN) {
+            if (buffer.charAt(start) == ':') {
+                return KEYWORD;
+            }
+            if (buffer.startsWith("nil", start) && end - start == 3
+                    || buffer.startsWith("true", start) && end - start == 4
+                    || buffer.startsWith("false", start) && end - start == 5) {
+                return CONSTANT;
+            }
+        }
+        return styles.get(kind);
+    }
+
+    /**
+     * Brackets are colored by depth, mismatched and unmatched closing brackets as errors. Unmatched open brackets keep
+     * their depth color, since every form being typed has one.
+     */
+    private AttributedStyle bracketStyle(int bracket) {
+        if (!brackets.isMatched(bracket) && (brackets.partner(bracket) >= 0 || !brackets.isOpen(bracket))) {
+            return ERROR;
+        }
+        return RAINBOW[brackets.depth(bracket) % RAINBOW.length];
+    }
+
+    @Override
+    public synchronized AttributedString highlight(LineReader reader, String buffer) {
+        long start = Metrics.start();
+        try {
+            return style(buffer);
+        } finally {
+            Metrics.record(Stage.HIGHLIGHT, start, buffer.length());
+        }
+    }
+
+    private AttributedString style(String buffer) {
+        boolean changed = lexer.update(buffer);
+        if (!changed && lastResult != null) {
+            return lastResult;
+        }
+
+        // Tokens before the re-lexed range are unchanged, and so is the styled text up to the last of them unless
+        // the edit changed how earlier brackets match
+        var tokens = lexer.tokens();
+        int from = 0;
+        if (changed) {
+            brackets.update(lexer);
+            if (lastResult != null && errorPattern == null) {
+                from = Math.min(lexer.editTokenFrom(), tokens.indexAfter(brackets.changedFrom()));
+            }
+        }
+        int pos = from == 0 ? 0 : tokens.end(from - 1);
+        int bracket = brackets.indexFrom(pos);
+        builder.setLength(pos);
+        for (int i = from; i < tokens.size(); i++) {
+            int start = tokens.start(i);
+            int end = tokens.end(i);
+            var kind = tokens.kind(i);
+            append(buffer, pos, start, AttributedStyle.DEFAULT);
+            boolean isBracket = switch (kind) {
+                case LIST_OPEN, LIST_CLOSE, VECTOR_OPEN, VECTOR_CLOSE, MAP_OPEN, MAP_CLOSE -> true;
+                default -> false;
+            };
+            var style = isBracket ? bracketStyle(bracket++) : styleOf(kind, tokens.complete(i), buffer, start, end);
+            append(buffer, start, end, style);
+            pos = end;
+        }
+        append(buffer, pos, buffer.length(), AttributedStyle.DEFAULT);
+
+        if (errorPattern != null) {
+            builder.styleMatches(errorPattern, AttributedStyle.INVERSE);
+        }
+        lastResult = builder.toAttributedString();
+        return lastResult;
+    }
+
+    /**
+     * Append a styled range, marking the error index inside it if there is one.
+     */
+    private void append(String buffer, int from, int to, AttributedStyle style) {
+        if (from >= to) {
+            return;
+        }
+        if (errorIndex >= from && errorIndex < to) {
+            builder.style(style).append(buffer, from, errorIndex);
+            builder.style(ERROR.inverse()).append(buffer, errorIndex, errorIndex + 1);
+            from = errorIndex + 1;
+        }
+        builder.style(style).append(buffer, from, to);
+    }
+
+    @Override
+    public synchronized void setErrorPattern(Pattern errorPattern) {
+        if (errorPattern != this.errorPattern) {
+            this.errorPattern = errorPattern;
+            lastResult = null;
+        }
+    }
+
+    @Override
+    public synchronized void setErrorIndex(int errorIndex) {
+        if (errorIndex != this.errorIndex) {
+            this.errorIndex = errorIndex;
+            lastResult = null;
+        }
+    }
+}
@@ -1,62 +1,216 @@
 package org.poa.cljt;
 
-import clojure.java.api.Clojure;
-import clojure.lang.LispReader;
+import org.jline.reader.CompletingParsedLine;
+import org.jline.reader.EOFError;
 import org.jline.reader.ParsedLine;
 import org.jline.reader.Parser;
 import org.jline.reader.SyntaxError;
-import org.jline.reader.impl.DefaultParser;
+import org.poa.cljt.lex.IncrementalToken;
+import org.poa.cljt.lex.IncrementalTokenScanner;
+import org.poa.cljt.lex.TokenSpans;
+import org.poa.cljt.metrics.Metrics;
+import org.poa.cljt.metrics.Stage;
 
-import java.io.PushbackReader;
-import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * A JLine parser for Clojure forms built on the incremental tokenizer.
+ * <p>
+ * Parsing only tokenizes the line; nothing is read, evaluated or interned. When a line is accepted while brackets,
+ * strings or reader macros are still open an {@link EOFError} is thrown so JLine continues with a secondary prompt.
+ * This class is not thread safe, as it reuses its scanning buffers between calls.
+ */
 public class CljParser implements Parser {
-    private final Parser inner = new DefaultParser();
+    private final IncrementalTokenScanner scanner = new IncrementalTokenScanner();
+    private final TokenSpans spans = new TokenSpans();
+    private char[] openBrackets = new char[16];
 
-    class CljParsedLine implements ParsedLine {
+    static class CljParsedLine implements CompletingParsedLine {
+        private final String line;
+        private final int cursor;
+        private final List<String> words;
+        private final int wordIndex;
+        private final int wordCursor;
+
+        CljParsedLine(String line, int cursor, List<String> words, int wordIndex, int wordCursor) {
+            this.line = line;
+            this.cursor = cursor;
+            this.words = words;
+            this.wordIndex = wordIndex;
+            this.wordCursor = wordCursor;
+        }
 
         @Override
         public String word() {
-            return "";
+            return words.get(wordIndex);
         }
 
         @Override
         public int wordCursor() {
-            return 0;
+            return wordCursor;
         }
 
         @Override
         public int wordIndex() {
-            return 0;
+            return wordIndex;
         }
 
         @Override
         public List<String> words() {
-            return List.of();
+            return words;
         }
 
         @Override
         public String line() {
-            return "";
+            return line;
         }
 
         @Override
         public int cursor() {
-            return 0;
+            return cursor;
+        }
+
+        @Override
+        public CharSequence escape(CharSequence candidate, boolean complete) {
+            return candidate;
         }
+
+        @Override
+        public int rawWordCursor() {
+            return wordCursor;
+        }
+
+        @Override
+        public int rawWordLength() {
+            return word().length();
+        }
+    }
+
+    private static boolean isWordKind(IncrementalToken.Kind kind) {
+        return kind == IncrementalToken.Kind.TOKEN
+                || kind == IncrementalToken.Kind.NUMBER
+                || kind == IncrementalToken.Kind.CHARACTER;
     }
 
+    /**
+     * Reader macros that cannot end a form, as they always apply to the form that follows them. A complete dispatch
+     * token never ends a form either: #( #{ and #" are followed by the token they open, and the others (#_ #' #?
+     * tagged literals, ...) are followed by a form.
+     */
+    private static boolean isPrefix(IncrementalToken.Kind kind) {
+        return switch (kind) {
+            case QUOTE, SYNTAX_QUOTE, UNQUOTE, DEREF, META, DISPATCH -> true;
+            default -> false;
+        };
+    }
 
-//    private String readToken(PushbackReader reader) {
-//        StringBuilder sb = new StringBuilder();
-//    }
+    private static char closingBracket(IncrementalToken.Kind kind) {
+        return switch (kind) {
+            case LIST_OPEN -> ')';
+            case VECTOR_OPEN -> ']';
+            default -> '}';
+        };
+    }
 
     @Override
-    public ParsedLine parse(String s, int i, ParseContext parseContext) throws SyntaxError {
-        var reader = new PushbackReader(new StringReader(s));
-        var exp = LispReader.read(reader, false, null, false);
-        System.out.println(exp);
-        return inner.parse(s, i, parseContext);
+    public ParsedLine parse(String line, int cursor, ParseContext context) throws SyntaxError {
+        long start = Metrics.start();
+        try {
+            return tokenize(line, cursor, context);
+        } finally {
+            Metrics.record(Stage.PARSE, start, line.length());
+        }
+    }
+
+    private ParsedLine tokenize(String line, int cursor, ParseContext context) throws SyntaxError {
+        spans.clear();
+        scanner.reset(line);
+        int depth = 0;
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            spans.add(scanner);
+            switch (scanner.tokenKind()) {
+                case LIST_OPEN, VECTOR_OPEN, MAP_OPEN -> {
+                    if (depth == openBrackets.length) {
+                        openBrackets = Arrays.copyOf(openBrackets, depth * 2);
+                    }
+                    openBrackets[depth++] = closingBracket(scanner.tokenKind());
+                }
+                case LIST_CLOSE, VECTOR_CLOSE, MAP_CLOSE -> depth = Math.max(0, depth - 1);
+                default -> {
+                }
+            }
+        }
+
+        if (context != ParseContext.COMPLETE && context != ParseContext.SPLIT_LINE) {
+            checkComplete(line, depth);
+        }
+
+        return buildParsedLine(line, cursor);
+    }
+
+    private void checkComplete(String line, int depth) throws EOFError {
+        int count = spans.size();
+        if (count > 0) {
+            int last = count - 1;
+            var kind = spans.kind(last);
+            // A number literal ends at the line end, so an incomplete one is an error for the reader to report
+            if (!spans.complete(last) && kind != IncrementalToken.Kind.NUMBER) {
+                throw eofError(line, switch (kind) {
+                    case STRING -> "Unterminated string";
+                    case CHARACTER -> "Incomplete character literal";
+                    default -> "Incomplete dispatch macro";
+                }, kind == IncrementalToken.Kind.STRING ? "\"" : "", depth);
+            }
+            if (isPrefix(kind)) {
+                throw eofError(line, "Missing form after reader macro", "form", depth);
+            }
+        }
+        if (depth > 0) {
+            throw eofError(line, "Missing closing bracket", String.valueOf(openBrackets[depth - 1]), depth);
+        }
+    }
+
+    private EOFError eofError(String line, String message, String missing, int depth) {
+        int row = 0;
+        int column = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '\n') {
+                row++;
+                column = 0;
+            } else {
+                column++;
+            }
+        }
+        String next = depth > 0 ? String.valueOf(openBrackets[depth - 1]) : null;
+        return new EOFError(row, column, message, missing, depth, next);
+    }
+
+    private ParsedLine buildParsedLine(String line, int cursor) {
+        int count = spans.size();
+        List<String> words = new ArrayList<>(count + 1);
+        int wordIndex = -1;
+        int wordCursor = 0;
+        for (int i = 0; i < count; i++) {
+            int start = spans.start(i);
+            int end = spans.end(i);
+            var kind = spans.kind(i);
+            if (wordIndex < 0 && isWordKind(kind) && start <= cursor && cursor <= end) {
+                wordIndex = words.size();
+                wordCursor = cursor - start;
+            } else if (wordIndex < 0 && start >= cursor) {
+                // The cursor sits between tokens, so completion starts an empty word here
+                wordIndex = words.size();
+                words.add("");
+            }
+            words.add(line.substring(start, end));
+        }
+        if (wordIndex < 0) {
+            wordIndex = words.size();
+            words.add("");
+        }
+        return new CljParsedLine(line, cursor, Collections.unmodifiableList(words), wordIndex, wordCursor);
     }
 }
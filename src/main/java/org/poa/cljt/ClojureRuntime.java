@@ -0,0 +1,92 @@
+package org.poa.cljt;
+
+import clojure.lang.IFn;
+import clojure.lang.RT;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Loads the Clojure runtime and builds the completion index on background threads, so the terminal and the first
+ * prompt do not wait for them.
+ * <p>
+ * Loading runs in stages: the runtime itself ({@code clojure.core}), then requiring {@code clojure.repl} alongside
+ * creating the completer, and finally a first refresh of the symbol index once both are done. Nothing here touches a
+ * Clojure class before {@link #start()}, and callers should not either until the stage they need is done.
+ */
+public class ClojureRuntime implements AutoCloseable {
+    static Logger logger = Logger.getLogger(ClojureRuntime.class.getName());
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("clojure-init-", 0).daemon().factory());
+    private final long startNanos = System.nanoTime();
+    private final CompletableFuture<Void> runtime;
+    private final CompletableFuture<Void> repl;
+    private final CompletableFuture<CljCompleter> completer;
+
+    private ClojureRuntime() {
+        runtime = CompletableFuture.runAsync(() -> {
+            RT.init();
+            logStage("Clojure runtime");
+        }, executor);
+        repl = runtime.thenRunAsync(() -> {
+            CljCompleter.requireDeps(var("clojure.core", "require"));
+            logStage("clojure.repl");
+        }, executor);
+        var created = runtime.thenApplyAsync(v -> new CljCompleter(), executor);
+        completer = created.thenCombine(repl, (c, v) -> {
+            c.getIndex().refresh();
+            logStage("Completion index");
+            return c;
+        });
+        completer.exceptionally(e -> {
+            logger.warning("Loading Clojure failed: " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Begin loading in the background.
+     */
+    public static ClojureRuntime start() {
+        return new ClojureRuntime();
+    }
+
+    private void logStage(String stage) {
+        logger.fine(() -> stage + " ready after "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + "ms");
+    }
+
+    private static IFn var(String ns, String name) {
+        return RT.var(ns, name);
+    }
+
+    /**
+     * @return Completed once {@code clojure.core} is loaded
+     */
+    public CompletableFuture<Void> runtime() {
+        return runtime;
+    }
+
+    /**
+     * @return Completed once {@code clojure.repl} is loaded
+     */
+    public CompletableFuture<Void> repl() {
+        return repl;
+    }
+
+    /**
+     * @return Completed with a completer whose index has been built over every namespace loaded so far
+     */
+    public CompletableFuture<CljCompleter> completer() {
+        return completer;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
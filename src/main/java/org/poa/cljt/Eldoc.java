@@ -0,0 +1,133 @@
+package org.poa.cljt;
+
+import clojure.lang.Namespace;
+import org.jetbrains.annotations.Nullable;
+import org.jline.console.CmdDesc;
+import org.jline.console.CmdLine;
+import org.jline.reader.LineReader;
+import org.jline.utils.AttributedString;
+import org.jline.utils.AttributedStringBuilder;
+import org.jline.utils.AttributedStyle;
+import org.jline.widget.TailTipWidgets;
+import org.poa.cljt.complete.ArglistCache;
+import org.poa.cljt.lex.FormTree;
+import org.poa.cljt.lex.IncrementalLexer;
+import org.poa.cljt.lex.IncrementalToken;
+import org.poa.cljt.metrics.Metrics;
+import org.poa.cljt.metrics.Stage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Shows the arglists and docstring of the function being called at the cursor below the prompt, through JLine's
+ * {@link TailTipWidgets}.
+ * <p>
+ * The operator is the symbol right after the opening parenthesis of the innermost list around the cursor, found in a
+ * {@link FormTree} kept up to date across key presses, so brackets in strings and comments do not count and vectors
+ * and maps around the cursor are looked through, e.g. in {@code (let [x |}. Its var's metadata comes from an
+ * {@link ArglistCache}, and the description built from it is kept as long as the cache returns the same entry, so
+ * while the cursor stays within a call nothing is resolved, printed or styled again.
+ */
+public class Eldoc {
+    /**
+     * The lines of the description pane: the arglists, then the start of the docstring.
+     */
+    private static final int DESCRIPTION_SIZE = 3;
+
+    private final LineReader reader;
+    private final Supplier<Namespace> currentNs;
+    private final ArglistCache cache;
+    private final IncrementalLexer lexer = new IncrementalLexer();
+    private FormTree forms = FormTree.EMPTY;
+
+    private @Nullable ArglistCache.Doc lastDoc;
+    private @Nullable CmdDesc lastDesc;
+
+    Eldoc(LineReader reader, Supplier<Namespace> currentNs, ArglistCache cache) {
+        this.reader = reader;
+        this.currentNs = currentNs;
+        this.cache = cache;
+    }
+
+    /**
+     * @param currentNs supplies the namespace operators are resolved in, or null until the runtime has loaded
+     */
+    public static TailTipWidgets install(LineReader reader, Supplier<Namespace> currentNs) {
+        var eldoc = new Eldoc(reader, currentNs, new ArglistCache(ArglistCache.DEFAULT_CAPACITY));
+        var widgets = new TailTipWidgets(reader, eldoc::describe, DESCRIPTION_SIZE, TailTipWidgets.TipType.TAIL_TIP);
+        // Descriptions are kept here, JLine's cache would keep them by the text before the call
+        widgets.setDescriptionCache(false);
+        // The constructor only defines the widgets, this binds them in place of JLine's editing widgets
+        widgets.enable();
+        return widgets;
+    }
+
+    /**
+     * @return The operator of the innermost list around {@code cursor} that has a symbol for one, or null
+     */
+    @Nullable String operator(String text, int cursor) {
+        if (lexer.update(text)) {
+            forms = forms.withEdit(lexer);
+        }
+        int open = forms.enclosingOpen(cursor);
+        while (open >= 0 && forms.kind(open) != IncrementalToken.Kind.LIST_OPEN) {
+            open = forms.enclosingOpen(forms.tokenStart(open));
+        }
+        if (open < 0 || open + 1 >= forms.size() || forms.kind(open + 1) != IncrementalToken.Kind.TOKEN) {
+            return null;
+        }
+        return text.substring(forms.tokenStart(open + 1), forms.tokenEnd(open + 1));
+    }
+
+    /**
+     * Describe the call at the cursor. JLine's own idea of the call in {@code line} does not know about strings or
+     * Clojure's brackets, so the buffer is looked at instead.
+     */
+    @Nullable CmdDesc describe(CmdLine line) {
+        var buffer = reader.getBuffer();
+        long start = Metrics.start();
+        try {
+            return describe(buffer.toString(), buffer.cursor());
+        } finally {
+            Metrics.record(Stage.ELDOC, start, buffer.length());
+        }
+    }
+
+    @Nullable CmdDesc describe(String text, int cursor) {
+        var ns = currentNs.get();
+        var operator = ns == null ? null : operator(text, cursor);
+        var doc = operator == null ? null : cache.lookup(ns, operator);
+        if (doc == null) {
+            return null;
+        }
+        if (doc != lastDoc) {
+            lastDesc = new CmdDesc(description(doc), List.of(), Map.of());
+            lastDoc = doc;
+        }
+        return lastDesc;
+    }
+
+    private static List<AttributedString> description(ArglistCache.Doc doc) {
+        var lines = new ArrayList<AttributedString>();
+        var signature = new AttributedStringBuilder()
+                .styled(AttributedStyle.BOLD, doc.name());
+        for (var arglist : doc.arglists()) {
+            signature.append(' ').append(arglist);
+        }
+        lines.add(signature.toAttributedString());
+        if (doc.doc() != null) {
+            for (var text : doc.doc().split("\n")) {
+                if (lines.size() == DESCRIPTION_SIZE) {
+                    break;
+                }
+                if (!text.isBlank()) {
+                    lines.add(new AttributedString(text.strip()));
+                }
+            }
+        }
+        return lines;
+    }
+}
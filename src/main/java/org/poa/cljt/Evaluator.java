@@ -0,0 +1,361 @@
+package org.poa.cljt;
+
+import clojure.lang.Associative;
+import clojure.lang.Compiler;
+import clojure.lang.LineNumberingPushbackReader;
+import clojure.lang.LispReader;
+import clojure.lang.Namespace;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import clojure.lang.Var;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates lines of Clojure one after another on a worker thread, so the thread reading input never waits for them.
+ * <p>
+ * The worker holds the session's thread bindings: {@code *ns*}, {@code *out*}, {@code *1} and the rest of what
+ * {@code clojure.main} binds, with {@code *out*} and {@code *err*} going to an {@link OutputBuffer}. An evaluation
+ * that outlives its timeout, or that {@link #interrupt()} stops, has its thread interrupted. Clojure code in a tight
+ * loop never looks at the interrupt, and the JVM can no longer stop a thread, so if the evaluation has not ended after
+ * a grace period its thread is abandoned to finish on its own, and a new worker carries on with the bindings as they
+ * were before the evaluation. The worker is a platform thread, so a runaway loop cannot pin a carrier thread that
+ * other sessions' virtual threads need, and it exits when idle, so idle sessions hold no platform thread.
+ */
+public class Evaluator implements AutoCloseable {
+    static Logger logger = Logger.getLogger(Evaluator.class.getName());
+
+    /**
+     * How long an interrupted evaluation gets to end before its thread is abandoned.
+     */
+    static final Duration GRACE = Duration.ofMillis(500);
+    static final Duration IDLE = Duration.ofSeconds(30);
+
+    private final OutputBuffer out;
+    private final Duration timeout;
+    private final CompletableFuture<?> runtime;
+    private final LinkedBlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private volatile Namespace ns;
+
+    // Guarded by this
+    private Thread worker;
+    private Task current;
+    /**
+     * The worker's bindings as of the end of its last evaluation, to start the next worker with.
+     */
+    private Associative bindings;
+    private boolean closed;
+
+    private record Task(String source, CompletableFuture<Object> result) {
+    }
+
+    /**
+     * Clojure's vars, looked up once the runtime has loaded.
+     */
+    private static final class Vars {
+        static final Var STAR_1 = RT.var("clojure.core", "*1");
+        static final Var STAR_2 = RT.var("clojure.core", "*2");
+        static final Var STAR_3 = RT.var("clojure.core", "*3");
+        static final Var STAR_E = RT.var("clojure.core", "*e");
+        /**
+         * Settings a session may {@code set!}, bound to their root values like {@code clojure.main} does.
+         */
+        static final Var[] SETTINGS = {
+                RT.var("clojure.core", "*warn-on-reflection*"),
+                RT.var("clojure.core", "*unchecked-math*"),
+                RT.var("clojure.core", "*math-context*"),
+                RT.var("clojure.core", "*print-meta*"),
+                RT.var("clojure.core", "*print-length*"),
+                RT.var("clojure.core", "*print-level*"),
+                RT.var("clojure.core", "*print-namespace-maps*"),
+                RT.var("clojure.core", "*data-readers*"),
+                RT.var("clojure.core", "*default-data-reader-fn*"),
+                RT.var("clojure.core", "*compile-path*"),
+                RT.var("clojure.core", "*assert*"),
+        };
+        static final Var PRN = RT.var("clojure.core", "prn");
+        static final Symbol USER = Symbol.intern("user");
+    }
+
+    /**
+     * @param runtime completed once {@code clojure.core} is loaded; evaluations wait for it
+     */
+    public Evaluator(OutputBuffer out, Duration timeout, CompletableFuture<?> runtime) {
+        this.out = out;
+        this.timeout = timeout;
+        this.runtime = runtime;
+        runtime.thenRun(() -> {
+            if (ns == null) {
+                ns = Namespace.findOrCreate(Vars.USER);
+            }
+        });
+    }
+
+    /**
+     * @return The namespace as of the last completed evaluation, or null until the runtime has loaded
+     */
+    public Namespace namespace() {
+        return ns;
+    }
+
+    /**
+     * Queue a line for evaluation. Its values and errors are printed to the output buffer.
+     *
+     * @return Completed with the value of the line's last form once it is printed, or exceptionally with the error
+     * the line failed with, a {@link TimeoutException} or a {@link CancellationException}
+     */
+    public CompletableFuture<Object> submit(String source) {
+        var task = new Task(source, new CompletableFuture<>());
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Evaluator closed");
+            }
+            queue.add(task);
+            startWorker();
+        }
+        return task.result;
+    }
+
+    /**
+     * Stop the running evaluation and drop the queued ones.
+     *
+     * @return Whether there was anything to stop
+     */
+    public boolean interrupt() {
+        Task task;
+        boolean dropped = false;
+        synchronized (this) {
+            task = current;
+            for (Task queued; (queued = queue.poll()) != null; ) {
+                queued.result.cancel(false);
+                dropped = true;
+            }
+        }
+        if (task != null) {
+            stop(task, new CancellationException("Interrupted"));
+        }
+        return task != null || dropped;
+    }
+
+    private void startWorker() {
+        if (worker == null && !closed) {
+            var initial = bindings;
+            worker = Thread.ofPlatform().daemon().name("cljt-eval-" + workerIds.incrementAndGet())
+                    .start(() -> work(initial));
+        }
+    }
+
+    private synchronized boolean isWorker() {
+        return worker == Thread.currentThread();
+    }
+
+    private void work(Associative initial) {
+        runtime.join();
+        if (initial == null) {
+            ns = Namespace.findOrCreate(Vars.USER);
+            initial = initialBindings();
+        }
+        Var.pushThreadBindings(initial);
+        try {
+            Task task;
+            while ((task = next()) != null) {
+                run(task);
+            }
+        } finally {
+            Var.popThreadBindings();
+        }
+    }
+
+    private Associative initialBindings() {
+        Associative initial = RT.mapUniqueKeys(
+                RT.CURRENT_NS, ns,
+                RT.OUT, out,
+                RT.ERR, out,
+                Vars.STAR_1, null,
+                Vars.STAR_2, null,
+                Vars.STAR_3, null,
+                Vars.STAR_E, null);
+        for (var setting : Vars.SETTINGS) {
+            initial = initial.assoc(setting, setting.getRawRoot());
+        }
+        return initial;
+    }
+
+    /**
+     * @return The next task, or null once this thread is no longer the worker or has been idle for too long
+     */
+    private Task next() {
+        var self = Thread.currentThread();
+        while (true) {
+            Task task;
+            boolean interrupted = false;
+            try {
+                task = queue.poll(IDLE.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Closed, or an interrupt meant for an evaluation that had just ended
+                task = null;
+                interrupted = true;
+            }
+            synchronized (this) {
+                if (worker != self) {
+                    if (task != null) {
+                        task.result.cancel(false);
+                    }
+                    return null;
+                }
+                if (task != null) {
+                    current = task;
+                    return task;
+                }
+                if (!interrupted && queue.isEmpty()) {
+                    worker = null;
+                    return null;
+                }
+            }
+        }
+    }
+
+    private void run(Task task) {
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> timeOut(task));
+        Object value = null;
+        Throwable error = null;
+        try {
+            value = eval(task.source);
+        } catch (Throwable e) {
+            error = e;
+            if (isWorker()) {
+                report(e);
+            }
+        }
+        out.drain();
+        synchronized (this) {
+            if (worker != Thread.currentThread()) {
+                // Abandoned, and the task has been completed already
+                return;
+            }
+            current = null;
+            bindings = Var.getThreadBindings();
+            ns = (Namespace) RT.CURRENT_NS.deref();
+            Thread.interrupted();
+        }
+        if (error == null) {
+            task.result.complete(value);
+        } else {
+            task.result.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Evaluate and print every form of a line, stopping at the first error.
+     */
+    private Object eval(String source) throws Exception {
+        var forms = new LineNumberingPushbackReader(new StringReader(source));
+        var eof = new Object();
+        Object value = null;
+        while (true) {
+            var form = LispReader.read(forms, false, eof, false);
+            if (form == eof) {
+                return value;
+            }
+            value = Compiler.eval(form);
+            Vars.STAR_3.set(Vars.STAR_2.deref());
+            Vars.STAR_2.set(Vars.STAR_1.deref());
+            Vars.STAR_1.set(value);
+            if (isWorker()) {
+                Vars.PRN.invoke(value);
+            }
+        }
+    }
+
+    private void report(Throwable e) {
+        Vars.STAR_E.set(e);
+        Throwable cause = e;
+        while (cause instanceof Compiler.CompilerException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        print(cause.getClass().getSimpleName() + ": " + cause.getMessage());
+    }
+
+    /**
+     * Print a message past the buffer's capacity, so reporting on an evaluation that filled it does not wait for it.
+     */
+    private void print(String message) {
+        out.printLine(message);
+    }
+
+    private void timeOut(Task task) {
+        synchronized (this) {
+            if (current != task) {
+                return;
+            }
+        }
+        print("Evaluation timed out after " + timeout.toMillis() + "ms");
+        stop(task, new TimeoutException("Evaluation timed out after " + timeout.toMillis() + "ms"));
+    }
+
+    /**
+     * Interrupt the task's thread, and abandon the thread if the task is still running after the grace period.
+     */
+    private void stop(Task task, Exception reason) {
+        Thread thread;
+        synchronized (this) {
+            if (current != task) {
+                return;
+            }
+            thread = worker;
+        }
+        thread.interrupt();
+        CompletableFuture.delayedExecutor(GRACE.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> abandon(task, thread, reason));
+    }
+
+    private void abandon(Task task, Thread thread, Exception reason) {
+        synchronized (this) {
+            if (current != task) {
+                return;
+            }
+            current = null;
+            worker = null;
+            if (!queue.isEmpty()) {
+                startWorker();
+            }
+        }
+        logger.warning(thread.getName() + " did not stop, leaving it to run on its own");
+        print("Evaluation did not stop when interrupted, leaving it to run on its own");
+        task.result.completeExceptionally(reason);
+    }
+
+    /**
+     * Interrupt the running evaluation and drop the queued ones.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        Task task;
+        synchronized (this) {
+            closed = true;
+            thread = worker;
+            task = current;
+            worker = null;
+            current = null;
+            for (Task queued; (queued = queue.poll()) != null; ) {
+                queued.result.cancel(false);
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        if (task != null) {
+            task.result.cancel(false);
+        }
+    }
+}
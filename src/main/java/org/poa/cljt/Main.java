@@ -1,44 +1,157 @@
 package org.poa.cljt;
 
 
-import clojure.lang.RT;
-import clojure.lang.Symbol;
-import clojure.lang.Var;
+import org.jetbrains.annotations.Nullable;
+import org.jline.reader.Completer;
+import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.Parser;
+import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
+import org.poa.cljt.complete.AsyncCompleter;
+import org.poa.cljt.complete.BufferWordCompleter;
+import org.poa.cljt.complete.DeferredCompleter;
+import org.poa.cljt.complete.FuzzyCompletionMatcher;
+import org.poa.cljt.history.HistorySearch;
+import org.poa.cljt.history.IndexedHistory;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
 public class Main {
-    final static private Symbol CLOJURE_REPL = Symbol.intern("clojure.repl");
-    final static private Var REQUIRE = RT.var("clojure.core", "require");
-    final static private Var APROPOS = RT.var("clojure.repl", "apropos");
+    /**
+     * How long a completion waits for the index before answering from the buffer instead, within the
+     * {@link AsyncCompleter} budget.
+     */
+    final static private Duration INDEX_WAIT = Duration.ofMillis(10);
+    /**
+     * With this system property set, exit once startup is done instead of reading input. Used by the cds profile's
+     * training run and by the startup benchmark.
+     */
+    final static private String STARTUP_PROBE = "cljt.startupProbe";
+    /**
+     * The history log to use, by default {@code ~/.cljt/history}. Shared by every session and process using it.
+     */
+    final static private String HISTORY = "cljt.history";
+    final static private String PROBE_LINE = "(defn f [x] (map inc (filter odd? [1 2 3])) \"s\" #{:k 1/2})";
 
     static Logger logger = Logger.getLogger(Main.class.getName());
 
     public static void main(String[] args) throws IOException {
+        long mainStart = System.nanoTime();
         LogManager.getLogManager().readConfiguration(Main.class.getResourceAsStream("/logging.properties"));
 
-        CljCompleter.requireDeps(REQUIRE);
-        var complete = new CljCompleter();
-
-        try (var terminal = TerminalBuilder.terminal()) {
-            var lreader = LineReaderBuilder.builder()
-                    .appName("demo")
-                    .terminal(terminal)
-                    .completer(complete)
-//                    .parser(new CljParser())
-                    .build();
-
-            var lne = lreader.readLine("demo> ");
-            REQUIRE.invoke(CLOJURE_REPL);
+        if (args.length == 2 && args[0].equals("--listen")) {
+            listen(args[1]);
+            return;
+        }
 
-            var out = APROPOS.invoke(lne);
-            System.out.println(out);
+        // Clojure loads in the background while the terminal comes up
+        try (var runtime = ClojureRuntime.start();
+             var terminal = TerminalBuilder.terminal()) {
+            var repl = new Repl(runtime.runtime());
+            var completer = runtime.completer().thenApply(c -> c.withNamespace(repl::namespace));
+            try (var asyncComplete = new AsyncCompleter(
+                    new DeferredCompleter(completer, new BufferWordCompleter(), INDEX_WAIT))) {
+                run(terminal, asyncComplete, openHistory(), repl, runtime, mainStart);
+            }
         } catch (Exception e) {
             logger.warning(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Open the history log, which only reads its header.
+     *
+     * @return The history, or null if the log cannot be opened
+     */
+    static @Nullable IndexedHistory openHistory() {
+        var path = System.getProperty(HISTORY);
+        try {
+            return IndexedHistory.open(path != null ? Path.of(path)
+                    : Path.of(System.getProperty("user.home"), ".cljt", "history"));
+        } catch (IOException e) {
+            logger.warning("History disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void run(Terminal terminal, Completer completer, @Nullable IndexedHistory history, Repl repl,
+                            ClojureRuntime runtime, long mainStart) {
+        var builder = LineReaderBuilder.builder()
+                .appName("cljt")
+                .terminal(terminal)
+                .completer(completer)
+                .completionMatcher(new FuzzyCompletionMatcher())
+                .parser(new CljParser())
+                .highlighter(new CljHighlighter());
+        if (history != null) {
+            builder.history(history);
+        }
+        var lreader = builder.build();
+        BlinkMatchingParen.install(lreader);
+        BracketedPaste.install(lreader);
+        if (history != null) {
+            HistorySearch.install(lreader, history);
+        }
+        Eldoc.install(lreader, repl::namespace);
+
+        long promptMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mainStart);
+        logger.info(() -> "First prompt after " + promptMillis + "ms" + ProcessHandle.current().info().startInstant()
+                .map(start -> " (" + (System.currentTimeMillis() - start.toEpochMilli()) + "ms since JVM start)")
+                .orElse(""));
+        if (Boolean.getBoolean(STARTUP_PROBE)) {
+            probe(lreader, runtime, mainStart, promptMillis);
+            return;
+        }
+        repl.run(lreader);
+    }
+
+    /**
+     * Serve REPL sessions until the process is stopped.
+     *
+     * @param address {@code tcp:[host:]port} or {@code unix:path}
+     */
+    private static void listen(String address) throws IOException {
+        SocketAddress socketAddress;
+        if (address.startsWith("unix:")) {
+            socketAddress = UnixDomainSocketAddress.of(address.substring("unix:".length()));
+        } else if (address.startsWith("tcp:")) {
+            var hostPort = address.substring("tcp:".length());
+            int colon = hostPort.lastIndexOf(':');
+            var host = colon < 0 ? "localhost" : hostPort.substring(0, colon);
+            socketAddress = new InetSocketAddress(host, Integer.parseInt(hostPort.substring(colon + 1)));
+        } else {
+            throw new IllegalArgumentException("Expected tcp:[host:]port or unix:path, got " + address);
+        }
+
+        try (var runtime = ClojureRuntime.start();
+             var server = ReplServer.open(socketAddress, runtime, openHistory()).start()) {
+            logger.info("Listening on " + server.localAddress());
+            server.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait for the runtime and run one highlight and completion, so every class a session needs has been loaded,
+     * then report the startup times.
+     */
+    private static void probe(LineReader reader, ClojureRuntime runtime, long mainStart, long promptMillis) {
+        reader.getHighlighter().highlight(reader, PROBE_LINE);
+        var completer = runtime.completer().join();
+        var line = reader.getParser().parse(PROBE_LINE, PROBE_LINE.indexOf(" inc"), Parser.ParseContext.COMPLETE);
+        completer.complete(reader, line, new ArrayList<>());
+        long readyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mainStart);
+        System.out.println("startup-probe prompt=" + promptMillis + "ms ready=" + readyMillis + "ms");
+    }
+}
@@ -0,0 +1,189 @@
+package org.poa.cljt;
+
+import org.jline.reader.LineReader;
+
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A writer for {@code *out*} and {@code *err*} that prints above the prompt in batches.
+ * <p>
+ * Writes only append to a bounded buffer. A virtual thread prints the complete lines in it with
+ * {@link LineReader#printAbove}, at most once per flush interval, so a chatty evaluation costs one redraw per
+ * interval instead of one per write and never interleaves with the line being edited. A writer that gets ahead of
+ * the terminal blocks once the buffer is full, interruptibly. A trailing partial line is held back until the
+ * evaluation ends and {@link #drain()} is called, since printing above the prompt always ends the line, unless it
+ * fills the buffer and a writer is waiting for room, in which case it is printed as is.
+ */
+public class OutputBuffer extends Writer {
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+    public static final Duration DEFAULT_INTERVAL = Duration.ofMillis(20);
+
+    private final LineReader reader;
+    private final int capacity;
+    private final long intervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition hasLines = lock.newCondition();
+    /**
+     * Held while taking text out and printing it, so concurrent drains print in order.
+     */
+    private final ReentrantLock printLock = new ReentrantLock();
+    private final StringBuilder buffer = new StringBuilder();
+    /**
+     * The length of the buffered complete lines.
+     */
+    private int lineEnd;
+    /**
+     * The number of writers waiting for room.
+     */
+    private int waiting;
+    private boolean closed;
+    private final Thread flusher;
+
+    public OutputBuffer(LineReader reader) {
+        this(reader, DEFAULT_CAPACITY, DEFAULT_INTERVAL);
+    }
+
+    public OutputBuffer(LineReader reader, int capacity, Duration interval) {
+        this.reader = reader;
+        this.capacity = capacity;
+        this.intervalNanos = interval.toNanos();
+        this.flusher = Thread.ofVirtual().name("cljt-output").start(this::flushLoop);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws InterruptedIOException {
+        write(java.nio.CharBuffer.wrap(cbuf, off, len));
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws InterruptedIOException {
+        write(str.subSequence(off, off + len));
+    }
+
+    /**
+     * @throws InterruptedIOException if the writer is interrupted while waiting for room, e.g. to stop an evaluation
+     */
+    private void write(CharSequence text) throws InterruptedIOException {
+        int len = text.length();
+        lock.lock();
+        try {
+            // Wait for room, unless the buffer is empty and the text is simply larger than it
+            while (!closed && buffer.length() > 0 && buffer.length() + len > capacity) {
+                waiting++;
+                hasLines.signal();
+                try {
+                    notFull.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to print");
+                } finally {
+                    waiting--;
+                }
+            }
+            buffer.append(text);
+            for (int i = len - 1; i >= 0; i--) {
+                if (text.charAt(i) == '\n') {
+                    lineEnd = buffer.length() - len + i + 1;
+                    hasLines.signal();
+                    break;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Buffered lines are printed by the next batch; use {@link #drain()} to print partial lines as well.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Print everything buffered, including a trailing partial line, on the calling thread.
+     */
+    public void drain() {
+        print(true);
+    }
+
+    /**
+     * Print everything buffered and then a line of its own, on the calling thread and without waiting for room, e.g.
+     * to report on an evaluation whose output may have filled the buffer.
+     */
+    public void printLine(String line) {
+        print(true, line + "\n");
+    }
+
+    private void print(boolean partial) {
+        print(partial, "");
+    }
+
+    private void print(boolean partial, String line) {
+        printLock.lock();
+        try {
+            String text;
+            lock.lock();
+            try {
+                // A partial line that leaves no room for a waiting writer has to go out without its end
+                int end = partial || lineEnd == 0 && waiting > 0 ? buffer.length() : lineEnd;
+                if (end == 0 && line.isEmpty()) {
+                    return;
+                }
+                text = buffer.substring(0, end) + line;
+                buffer.delete(0, end);
+                lineEnd = Math.max(0, lineEnd - end);
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            reader.printAbove(text);
+        } finally {
+            printLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        try {
+            while (true) {
+                lock.lock();
+                try {
+                    while (lineEnd == 0 && waiting == 0 && !closed) {
+                        hasLines.await();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                // Let the batch fill up
+                TimeUnit.NANOSECONDS.sleep(intervalNanos);
+                print(false);
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            hasLines.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.interrupt();
+        drain();
+    }
+}
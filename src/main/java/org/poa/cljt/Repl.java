@@ -0,0 +1,136 @@
+package org.poa.cljt;
+
+import clojure.lang.Namespace;
+import org.jline.reader.EndOfFileException;
+import org.jline.reader.LineReader;
+import org.jline.reader.UserInterruptException;
+import org.jline.terminal.Terminal;
+import org.poa.cljt.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The read-eval-print loop shared by the local terminal and {@link ReplSession}.
+ * <p>
+ * The reader's {@link CljParser} only accepts a line once its forms are complete, and the line is then handed to an
+ * {@link Evaluator} while the next prompt comes up, with output printed above it by an {@link OutputBuffer}. A quick
+ * evaluation is waited for briefly, so the next prompt follows its output and shows the namespace it switched to.
+ * Ctrl-C interrupts the running evaluation, both at the prompt and while waiting. The {@code :stats} command prints
+ * the input latencies kept by {@link Metrics} instead of being evaluated.
+ */
+public class Repl {
+    /**
+     * How long an evaluation may run, in seconds, unless interrupted first.
+     */
+    final static private String TIMEOUT = "cljt.evalTimeout";
+    final static private long DEFAULT_TIMEOUT_SECONDS = 300;
+    /**
+     * How long the next prompt waits for an evaluation before leaving it to finish in the background.
+     */
+    final static private Duration PROMPT_WAIT = Duration.ofMillis(200);
+    final static private String STATS = ":stats";
+
+    private final CompletableFuture<?> runtime;
+    private final Duration timeout;
+    private volatile Evaluator evaluator;
+
+    /**
+     * @param runtime completed once {@code clojure.core} is loaded; the first prompt does not wait for it
+     */
+    public Repl(CompletableFuture<?> runtime) {
+        this(runtime, Duration.ofSeconds(Long.getLong(TIMEOUT, DEFAULT_TIMEOUT_SECONDS)));
+    }
+
+    public Repl(CompletableFuture<?> runtime, Duration timeout) {
+        this.runtime = runtime;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return The namespace as of the last completed evaluation, or null until the runtime has loaded
+     */
+    public Namespace namespace() {
+        var current = evaluator;
+        return current == null ? null : current.namespace();
+    }
+
+    /**
+     * Read, evaluate and print until the end of the input.
+     */
+    public void run(LineReader reader) {
+        var terminal = reader.getTerminal();
+        try (var out = new OutputBuffer(reader); var evaluator = new Evaluator(out, timeout, runtime)) {
+            this.evaluator = evaluator;
+            // JLine handles Ctrl-C itself while reading a line
+            var previous = terminal.handle(Terminal.Signal.INT, signal -> evaluator.interrupt());
+            try {
+                loop(reader, out, evaluator);
+            } finally {
+                terminal.handle(Terminal.Signal.INT, previous);
+            }
+        }
+    }
+
+    private void loop(LineReader reader, OutputBuffer out, Evaluator evaluator) {
+        while (true) {
+            String line;
+            try {
+                line = reader.readLine(prompt());
+            } catch (UserInterruptException e) {
+                evaluator.interrupt();
+                continue;
+            } catch (EndOfFileException e) {
+                return;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            var words = line.strip().split("\\s+");
+            if (words[0].equals(STATS) && words.length <= 2) {
+                out.drain();
+                reader.printAbove(stats(words.length == 2 ? words[1] : ""));
+                continue;
+            }
+            try {
+                evaluator.submit(line).get(PROMPT_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException | CancellationException e) {
+                // Printed by the evaluator, or still running
+            }
+        }
+    }
+
+    /**
+     * Run the {@code :stats} command, which prints the input latency table, or turns timing on or off, or resets it.
+     */
+    private static String stats(String argument) {
+        switch (argument) {
+            case "" -> {
+                return Metrics.report();
+            }
+            case "on", "off" -> {
+                Metrics.setEnabled(argument.equals("on"));
+                return "Timing is " + argument;
+            }
+            case "reset" -> {
+                Metrics.reset();
+                return "Timings reset";
+            }
+            default -> {
+                return "Usage: " + STATS + " [on|off|reset]";
+            }
+        }
+    }
+
+    private String prompt() {
+        var ns = namespace();
+        return (ns == null ? "user" : ns.getName().getName()) + "=> ";
+    }
+}
@@ -0,0 +1,149 @@
+package org.poa.cljt;
+
+import org.jetbrains.annotations.Nullable;
+import org.poa.cljt.history.IndexedHistory;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Serves REPL sessions over TCP or a Unix domain socket, one {@link ReplSession} per connection.
+ * <p>
+ * Every connection is served on its own virtual thread, and sessions wait for input on locks that unmount it, so
+ * sessions that sit idle at a prompt hold no platform thread, and hundreds of them can share one JVM, its Clojure
+ * runtime and its completion index. The peer is treated as a raw terminal, e.g.
+ * {@code socat -,raw,echo=0 TCP:localhost:5555} or {@code socat -,raw,echo=0 UNIX-CONNECT:/tmp/cljt.sock}.
+ */
+public class ReplServer implements AutoCloseable {
+    static Logger logger = Logger.getLogger(ReplServer.class.getName());
+
+    private final ServerSocketChannel server;
+    private final ClojureRuntime runtime;
+    private final @Nullable IndexedHistory history;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    private Thread acceptor;
+
+    private ReplServer(ServerSocketChannel server, ClojureRuntime runtime, @Nullable IndexedHistory history) {
+        this.server = server;
+        this.runtime = runtime;
+        this.history = history;
+    }
+
+    /**
+     * Bind a server to an {@link java.net.InetSocketAddress} or a {@link UnixDomainSocketAddress}. A Unix socket file
+     * must not exist yet and is removed again on {@link #close()}. Sessions keep their history in memory.
+     */
+    public static ReplServer open(SocketAddress address, ClojureRuntime runtime) throws IOException {
+        return open(address, runtime, null);
+    }
+
+    /**
+     * Like {@link #open(SocketAddress, ClojureRuntime)}, with every session appending to and searching a shared
+     * history.
+     */
+    public static ReplServer open(SocketAddress address, ClojureRuntime runtime, @Nullable IndexedHistory history)
+            throws IOException {
+        var server = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        try {
+            server.bind(address);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        return new ReplServer(server, runtime, history);
+    }
+
+    public SocketAddress localAddress() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    public int sessionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Start accepting connections in the background.
+     */
+    public synchronized ReplServer start() {
+        if (acceptor == null) {
+            acceptor = Thread.ofVirtual().name("repl-accept").start(this::acceptLoop);
+        }
+        return this;
+    }
+
+    /**
+     * Block until the server is closed.
+     */
+    public void join() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = acceptor;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                logger.warning("Accept failed: " + e.getMessage());
+                continue;
+            }
+            int id = sessionIds.incrementAndGet();
+            connections.add(channel);
+            Thread.ofVirtual().name("repl-session-" + id).start(() -> serve(channel, id));
+        }
+    }
+
+    private void serve(SocketChannel channel, int id) {
+        try (channel) {
+            logger.fine(() -> "Session " + id + " connected");
+            new ReplSession("session-" + id, Channels.newInputStream(channel), Channels.newOutputStream(channel),
+                    runtime, history == null ? null : history.newSession()).run();
+        } catch (IOException e) {
+            logger.warning("Session " + id + " failed: " + e.getMessage());
+        } finally {
+            connections.remove(channel);
+            logger.fine(() -> "Session " + id + " disconnected");
+        }
+    }
+
+    /**
+     * Stop accepting and disconnect every session.
+     */
+    @Override
+    public void close() throws IOException {
+        var address = server.isOpen() ? server.getLocalAddress() : null;
+        server.close();
+        for (var channel : connections) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.fine(() -> "Closing session failed: " + e.getMessage());
+            }
+        }
+        if (address instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.poa.cljt;
+
+import org.jetbrains.annotations.Nullable;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.terminal.Size;
+import org.poa.cljt.complete.AsyncCompleter;
+import org.poa.cljt.complete.BufferWordCompleter;
+import org.poa.cljt.complete.DeferredCompleter;
+import org.poa.cljt.complete.FuzzyCompletionMatcher;
+import org.poa.cljt.history.HistorySearch;
+import org.poa.cljt.history.IndexedHistory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOError;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.logging.Logger;
+
+/**
+ * One REPL session over a pair of streams, e.g. a socket accepted by {@link ReplServer}.
+ * <p>
+ * The session has its own JLine terminal on the streams, fed by a virtual thread of its own, with its own parser,
+ * lexer, highlighter and completer, and runs a {@link Repl} with its own {@link Evaluator}, so its Clojure thread
+ * bindings are its own: {@code *ns*}, {@code *out*}, {@code *1} and the rest of what {@code clojure.main} binds. The
+ * completer shares the symbol and keyword indexes of the runtime's completer, resolving against the session's
+ * namespace. Both threads wait for input without pinning their carrier thread, see {@link SessionTerminal}.
+ */
+public class ReplSession implements Runnable {
+    static Logger logger = Logger.getLogger(ReplSession.class.getName());
+
+    private static final Duration INDEX_WAIT = Duration.ofMillis(10);
+    private static final Size DEFAULT_SIZE = new Size(80, 24);
+
+    private final ClojureRuntime runtime;
+    private final InputStream in;
+    private final SessionTerminal terminal;
+    private final @Nullable IndexedHistory history;
+
+    /**
+     * @param name a name for the terminal, e.g. the peer address
+     * @param history the session's history, or null to keep it in memory
+     */
+    public ReplSession(String name, InputStream in, OutputStream out, ClojureRuntime runtime,
+                       @Nullable IndexedHistory history) throws IOException {
+        this.runtime = runtime;
+        this.in = in;
+        this.history = history;
+        // Not TerminalBuilder, which would open a pty and pump it with two platform threads per session
+        // The terminal writes byte by byte and flushes after every redraw, so batch its writes to the peer
+        this.terminal = new SessionTerminal(name, new BufferedOutputStream(out));
+        terminal.setSize(DEFAULT_SIZE);
+    }
+
+    /**
+     * Feed the peer's input through the terminal's line discipline, closing the terminal at the end of the input so
+     * the session ends.
+     */
+    private void pumpInput() {
+        var buffer = new byte[1024];
+        try (terminal) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                terminal.processInputBytes(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            logger.fine(() -> "Session " + terminal.getName() + " input closed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void run() {
+        var repl = new Repl(runtime.runtime());
+        var sessionCompleter = runtime.completer().thenApply(c -> c.withNamespace(repl::namespace));
+        Thread.ofVirtual().name(terminal.getName() + "-input").start(this::pumpInput);
+        try (terminal; var completer = new AsyncCompleter(
+                new DeferredCompleter(sessionCompleter, new BufferWordCompleter(), INDEX_WAIT))) {
+            var builder = LineReaderBuilder.builder()
+                    .appName("cljt")
+                    .terminal(terminal)
+                    .completer(completer)
+                    .completionMatcher(new FuzzyCompletionMatcher())
+                    .parser(new CljParser())
+                    .highlighter(new CljHighlighter());
+            if (history != null) {
+                builder.history(history);
+            }
+            var reader = builder.build();
+            BlinkMatchingParen.install(reader);
+            BracketedPaste.install(reader);
+            if (history != null) {
+                HistorySearch.install(reader, history);
+            }
+            Eldoc.install(reader, repl::namespace);
+
+            repl.run(reader);
+        } catch (IOException | IOError e) {
+            logger.fine(() -> "Session " + terminal.getName() + " closed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.poa.cljt;
+
+import org.jetbrains.annotations.Nullable;
+import org.jline.terminal.impl.LineDisciplineTerminal;
+import org.jline.utils.ClosedException;
+import org.jline.utils.NonBlocking;
+import org.jline.utils.NonBlockingInputStream;
+import org.jline.utils.NonBlockingReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link LineDisciplineTerminal} that a virtual thread can wait for input on without holding a platform thread.
+ * <p>
+ * JLine's terminal passes the bytes that come out of its line discipline to the reader through a pipe that waits on
+ * its monitor, and before JDK 24 a virtual thread waiting on a monitor stays pinned to its carrier thread, so every
+ * session sitting at its prompt would take a carrier from the scheduler. Here each byte is moved on to a pipe that
+ * waits on a {@link Condition} instead, which unmounts the virtual thread, and the reader reads from that.
+ */
+class SessionTerminal extends LineDisciplineTerminal {
+    private static final int PIPE_SIZE = 1024;
+
+    private final Pipe pipe = new Pipe(PIPE_SIZE);
+    private final NonBlockingReader reader;
+
+    SessionTerminal(String name, OutputStream out) throws IOException {
+        super(name, "xterm-256color", out, StandardCharsets.UTF_8);
+        this.reader = NonBlocking.nonBlocking(name, pipe, encoding());
+    }
+
+    @Override
+    public NonBlockingReader reader() {
+        return reader;
+    }
+
+    @Override
+    public InputStream input() {
+        return pipe;
+    }
+
+    @Override
+    protected boolean doProcessInputByte(int c) throws IOException {
+        boolean echoed = super.doProcessInputByte(c);
+        // Nothing else reads JLine's pipe, so it holds at most this byte and taking it out never waits
+        while (slaveInput.available() > 0) {
+            pipe.write(slaveInput.read());
+        }
+        return echoed;
+    }
+
+    @Override
+    protected void processIOException(IOException ioException) {
+        pipe.setIoException(ioException);
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        try {
+            super.doClose();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * A bounded byte queue with JLine's non-blocking read interface, written by the session's input thread.
+     */
+    private static class Pipe extends NonBlockingInputStream {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final byte[] buffer;
+        private int start;
+        private int count;
+        private boolean closed;
+        private @Nullable IOException ioException;
+
+        Pipe(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        /**
+         * Wait for a byte while holding the lock.
+         *
+         * @param timeout in milliseconds, or 0 or less to wait until one arrives or the pipe is closed
+         * @return 0 if there is a byte to read, else {@link #EOF} or {@link #READ_EXPIRED}
+         */
+        private int await(long timeout) throws IOException {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            try {
+                while (count == 0 && !closed && ioException == null) {
+                    if (timeout <= 0) {
+                        notEmpty.await();
+                    } else if (nanos <= 0) {
+                        return READ_EXPIRED;
+                    } else {
+                        nanos = notEmpty.awaitNanos(nanos);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for input");
+            }
+            if (ioException != null) {
+                throw ioException;
+            }
+            return count > 0 ? 0 : EOF;
+        }
+
+        private int take() {
+            int c = buffer[start] & 0xff;
+            start = (start + 1) % buffer.length;
+            count--;
+            notFull.signal();
+            return c;
+        }
+
+        @Override
+        public int read(long timeout, boolean isPeek) throws IOException {
+            lock.lock();
+            try {
+                int status = await(timeout);
+                if (status < 0) {
+                    return status;
+                }
+                return isPeek ? buffer[start] & 0xff : take();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int readBuffered(byte[] b, int off, int len, long timeout) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            lock.lock();
+            try {
+                int status = await(timeout);
+                if (status < 0) {
+                    return status;
+                }
+                int read = 0;
+                while (read < len && count > 0) {
+                    b[off + read++] = (byte) take();
+                }
+                return read;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @throws ClosedException if the pipe is closed, also while waiting for room
+         */
+        void write(int c) throws IOException {
+            lock.lock();
+            try {
+                while (count == buffer.length && !closed) {
+                    notFull.await();
+                }
+                if (closed) {
+                    throw new ClosedException();
+                }
+                buffer[(start + count) % buffer.length] = (byte) c;
+                count++;
+                notEmpty.signal();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to pass input on");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void setIoException(IOException ioException) {
+            lock.lock();
+            try {
+                this.ioException = ioException;
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                closed = true;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
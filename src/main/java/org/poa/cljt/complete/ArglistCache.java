@@ -0,0 +1,128 @@
+package org.poa.cljt.complete;
+
+import clojure.lang.Compiler;
+import clojure.lang.IPersistentMap;
+import clojure.lang.Keyword;
+import clojure.lang.Namespace;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import clojure.lang.Var;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of the {@code :arglists} and {@code :doc} of the vars that symbols resolve to.
+ * <p>
+ * Entries are keyed by namespace and symbol, and remember the namespace's mappings and aliases and the var's metadata
+ * they were made from. All three are persistent maps that are replaced on every change, so checking an entry takes
+ * three identity comparisons: interning, referring or aliasing in the namespace, or redefining the var, which gives it
+ * new metadata, makes the entry miss and the symbol be resolved again. Unqualified symbols that resolve to no var are
+ * cached too, so locals and special forms are not resolved on every key press either.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class ArglistCache {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final Keyword ARGLISTS = Keyword.intern("arglists");
+    private static final Keyword DOC = Keyword.intern("doc");
+
+    /**
+     * @param name     the var's qualified name
+     * @param arglists each argument vector, printed
+     */
+    public record Doc(String name, List<String> arglists, @Nullable String doc) {
+    }
+
+    private record Key(Namespace ns, String symbol) {
+    }
+
+    private record Entry(IPersistentMap mappings, IPersistentMap aliases, @Nullable Var var,
+                         @Nullable IPersistentMap meta, @Nullable Doc doc) {
+    }
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private int misses;
+
+    public ArglistCache(int capacity) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return The documentation of the var {@code symbol} resolves to in {@code ns}, or null if it resolves to none or
+     * the var has neither arglists nor a docstring
+     */
+    public @Nullable Doc lookup(Namespace ns, String symbol) {
+        var key = new Key(ns, symbol);
+        var mappings = ns.getMappings();
+        var aliases = ns.getAliases();
+        var entry = entries.get(key);
+        if (entry != null && entry.mappings == mappings && entry.aliases == aliases
+                && (entry.var == null || entry.var.meta() == entry.meta)) {
+            return entry.doc;
+        }
+        misses++;
+        entry = resolve(ns, symbol, mappings, aliases);
+        if (entry != null) {
+            entries.put(key, entry);
+        } else {
+            entries.remove(key);
+        }
+        return entry == null ? null : entry.doc;
+    }
+
+    /**
+     * @return The entry for a symbol, or null if its absence of documentation is not worth remembering
+     */
+    private static @Nullable Entry resolve(Namespace ns, String symbol, IPersistentMap mappings,
+                                           IPersistentMap aliases) {
+        Object target;
+        try {
+            target = Compiler.maybeResolveIn(ns, Symbol.intern(symbol));
+        } catch (RuntimeException e) {
+            target = null;
+        }
+        if (target instanceof Var var) {
+            var meta = var.meta();
+            return new Entry(mappings, aliases, var, meta, doc(var, meta));
+        }
+        // A qualified symbol can start resolving when its namespace is loaded, which the mappings do not show
+        int slash = symbol.indexOf('/');
+        return slash > 0 && slash < symbol.length() - 1 ? null : new Entry(mappings, aliases, null, null, null);
+    }
+
+    private static @Nullable Doc doc(Var var, @Nullable IPersistentMap meta) {
+        var arglists = new ArrayList<String>();
+        if (RT.get(meta, ARGLISTS) instanceof Collection<?> lists) {
+            for (var list : lists) {
+                arglists.add(RT.printString(list));
+            }
+        }
+        var doc = RT.get(meta, DOC) instanceof String s ? s : null;
+        if (arglists.isEmpty() && doc == null) {
+            return null;
+        }
+        return new Doc(var.ns.getName() + "/" + var.sym, List.copyOf(arglists), doc);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups that had to resolve the symbol
+     */
+    public int misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,115 @@
+package org.poa.cljt.complete;
+
+import org.jline.reader.Candidate;
+import org.jline.reader.Completer;
+import org.jline.reader.LineReader;
+import org.jline.reader.ParsedLine;
+import org.jline.utils.NonBlockingReader;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Runs another completer on a virtual thread so a slow lookup cannot freeze the terminal.
+ * <p>
+ * JLine calls {@link #complete} on its input thread. This waits for the delegate for at most the latency budget,
+ * polling the terminal in the meantime. If the user presses another key, or the budget runs out, the background
+ * generation is interrupted and whatever candidates it produced so far are returned. Delegates should check
+ * {@link Thread#isInterrupted()} between expensive stages and must add to the given list from a single thread.
+ */
+public class AsyncCompleter implements Completer, AutoCloseable {
+    /**
+     * One frame at 60Hz.
+     */
+    public static final Duration DEFAULT_BUDGET = Duration.ofMillis(16);
+
+    private static final long POLL_MILLIS = 1;
+
+    static Logger logger = Logger.getLogger(AsyncCompleter.class.getName());
+
+    private final Completer delegate;
+    private final long budgetNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private Future<?> pending;
+
+    public AsyncCompleter(Completer delegate) {
+        this(delegate, DEFAULT_BUDGET);
+    }
+
+    public AsyncCompleter(Completer delegate, Duration budget) {
+        this.delegate = delegate;
+        this.budgetNanos = budget.toNanos();
+    }
+
+    /**
+     * A list that can be read while the background generation is still appending to it.
+     */
+    private static final class CandidateBuffer extends ArrayList<Candidate> {
+        @Override
+        public synchronized boolean add(Candidate candidate) {
+            return super.add(candidate);
+        }
+
+        @Override
+        public synchronized boolean addAll(Collection<? extends Candidate> c) {
+            return super.addAll(c);
+        }
+
+        synchronized void drainTo(List<Candidate> out) {
+            out.addAll(this);
+        }
+    }
+
+    @Override
+    public void complete(LineReader reader, ParsedLine line, List<Candidate> candidates) {
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        var buffer = new CandidateBuffer();
+        var task = executor.submit(() -> delegate.complete(reader, line, buffer));
+        pending = task;
+
+        long deadline = System.nanoTime() + budgetNanos;
+        var input = reader != null && reader.getTerminal() != null ? reader.getTerminal().reader() : null;
+        try {
+            while (!task.isDone()) {
+                if (System.nanoTime() >= deadline || keyPressed(input)) {
+                    task.cancel(true);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            task.cancel(true);
+            logger.warning(e.getMessage());
+        }
+        buffer.drainTo(candidates);
+    }
+
+    /**
+     * Wait up to one poll interval for terminal input without consuming it.
+     */
+    private static boolean keyPressed(NonBlockingReader input) throws IOException {
+        if (input == null) {
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return true;
+            }
+            return false;
+        }
+        return input.peek(POLL_MILLIS) >= 0;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
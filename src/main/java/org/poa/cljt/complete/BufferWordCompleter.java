@@ -0,0 +1,41 @@
+package org.poa.cljt.complete;
+
+import org.jline.reader.Candidate;
+import org.jline.reader.Completer;
+import org.jline.reader.LineReader;
+import org.jline.reader.ParsedLine;
+import org.poa.cljt.lex.IncrementalToken;
+import org.poa.cljt.lex.IncrementalTokenScanner;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Completes the word at the cursor from the other symbols and keywords in the buffer. It needs nothing from the Clojure
+ * runtime, so it can stand in while the runtime is still loading.
+ */
+public class BufferWordCompleter implements Completer {
+
+    @Override
+    public void complete(LineReader reader, ParsedLine line, List<Candidate> candidates) {
+        var prefix = line.word().substring(0, line.wordCursor());
+        if (prefix.isEmpty()) {
+            return;
+        }
+        var text = line.line();
+        var scanner = new IncrementalTokenScanner(text);
+        var seen = new HashSet<String>();
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            if (scanner.tokenKind() != IncrementalToken.Kind.TOKEN
+                    || scanner.tokenLength() <= prefix.length()
+                    || !text.startsWith(prefix, scanner.tokenStart())
+                    || scanner.tokenEnd() == line.cursor()) {
+                continue;
+            }
+            var word = scanner.tokenContent();
+            if (seen.add(word)) {
+                candidates.add(new Candidate(word, word, "buffer", null, null, null, true));
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.poa.cljt.complete;
+
+import org.poa.cljt.lex.IncrementalToken;
+import org.poa.cljt.lex.IncrementalTokenScanner;
+
+import java.util.Arrays;
+
+/**
+ * Describes what kind of name is being typed at the cursor, derived from the token stream before it.
+ *
+ * @param kind      the kind of completion that applies
+ * @param word      the whole word at the cursor, as it will be replaced by a candidate
+ * @param qualifier the part before the '/' for {@link Kind#QUALIFIED} and {@link Kind#JAVA_STATIC}, otherwise null
+ * @param prefix    the part of the word to match: after the '/' for qualified words, the whole word otherwise
+ */
+public record CompletionContext(Kind kind, String word, String qualifier, String prefix) {
+
+    public enum Kind {
+        /**
+         * Inside a string, comment or character literal, where nothing is completed.
+         */
+        NONE,
+        /**
+         * A plain symbol.
+         */
+        SYMBOL,
+        /**
+         * The first element of a list, i.e. a function, macro or special form.
+         */
+        FUNCTION,
+        /**
+         * A symbol qualified by a namespace or alias, {@code ns/name}.
+         */
+        QUALIFIED,
+        /**
+         * A namespace name inside a {@code require} or {@code use} form.
+         */
+        NAMESPACE,
+        /**
+         * A keyword, {@code :name} or {@code ::name}.
+         */
+        KEYWORD,
+        /**
+         * A Java instance member, {@code .method}.
+         */
+        JAVA_METHOD,
+        /**
+         * A static Java member, {@code Class/member}.
+         */
+        JAVA_STATIC
+    }
+
+    private static boolean isPrefixKind(IncrementalToken.Kind kind) {
+        return switch (kind) {
+            case QUOTE, SYNTAX_QUOTE, UNQUOTE, DEREF, META, DISPATCH -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isRequireHead(String head) {
+        return switch (head) {
+            case ":require", "require", ":use", "use", ":require-macros" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Guess if a qualifier names a class rather than a namespace: either a simple capitalized name, or a dotted name
+     * whose last segment is capitalized, e.g. {@code Math} or {@code java.util.UUID}.
+     */
+    static boolean looksLikeClass(String qualifier) {
+        int dot = qualifier.lastIndexOf('.');
+        return dot + 1 < qualifier.length() && Character.isUpperCase(qualifier.charAt(dot + 1));
+    }
+
+    /**
+     * @return If a token ending at the cursor still extends to it: an unterminated string, or a comment that has not
+     * reached its newline
+     */
+    private static boolean isOpenAtEnd(CharSequence line, IncrementalTokenScanner scanner) {
+        return switch (scanner.tokenKind()) {
+            case STRING -> !scanner.tokenComplete();
+            case COMMENT -> {
+                char last = line.charAt(scanner.tokenEnd() - 1);
+                yield last != '\n' && last != '\r';
+            }
+            default -> false;
+        };
+    }
+
+    /**
+     * Classify the cursor position of a line.
+     */
+    public static CompletionContext classify(CharSequence line, int cursor) {
+        var scanner = new IncrementalTokenScanner(line);
+        IncrementalToken.Kind[] frameKinds = new IncrementalToken.Kind[8];
+        String[] frameHeads = new String[8];
+        int[] frameCounts = new int[8];
+        int depth = 0;
+
+        String word = "";
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            var kind = scanner.tokenKind();
+            if (scanner.tokenStart() >= cursor) {
+                break;
+            }
+            if (scanner.tokenEnd() >= cursor) {
+                if (kind == IncrementalToken.Kind.TOKEN || kind == IncrementalToken.Kind.NUMBER) {
+                    word = line.subSequence(scanner.tokenStart(), scanner.tokenEnd()).toString();
+                    break;
+                }
+                if (scanner.tokenEnd() > cursor || isOpenAtEnd(line, scanner)) {
+                    return new CompletionContext(Kind.NONE, "", null, "");
+                }
+            }
+
+            switch (kind) {
+                case LIST_OPEN, VECTOR_OPEN, MAP_OPEN -> {
+                    if (depth > 0) {
+                        frameCounts[depth - 1]++;
+                    }
+                    if (depth == frameKinds.length) {
+                        frameKinds = Arrays.copyOf(frameKinds, depth * 2);
+                        frameHeads = Arrays.copyOf(frameHeads, depth * 2);
+                        frameCounts = Arrays.copyOf(frameCounts, depth * 2);
+                    }
+                    frameKinds[depth] = kind;
+                    frameHeads[depth] = null;
+                    frameCounts[depth] = 0;
+                    depth++;
+                }
+                case LIST_CLOSE, VECTOR_CLOSE, MAP_CLOSE -> depth = Math.max(0, depth - 1);
+                case COMMENT -> {
+                }
+                default -> {
+                    if (depth > 0 && !isPrefixKind(kind)) {
+                        if (frameCounts[depth - 1] == 0 && kind == IncrementalToken.Kind.TOKEN) {
+                            frameHeads[depth - 1] = scanner.tokenContent();
+                        }
+                        frameCounts[depth - 1]++;
+                    }
+                }
+            }
+        }
+
+        if (word.startsWith(":")) {
+            return new CompletionContext(Kind.KEYWORD, word, null, word);
+        }
+
+        // Either directly in the require form, or the first element of a libspec vector inside it
+        boolean inRequire = depth > 0 && frameHeads[depth - 1] != null && isRequireHead(frameHeads[depth - 1]);
+        boolean libspecHead = depth > 1 && frameCounts[depth - 1] == 0
+                && frameKinds[depth - 1] != IncrementalToken.Kind.MAP_OPEN
+                && frameHeads[depth - 2] != null && isRequireHead(frameHeads[depth - 2]);
+        if (inRequire || libspecHead) {
+            return new CompletionContext(Kind.NAMESPACE, word, null, word);
+        }
+
+        if (word.length() > 1 && word.charAt(0) == '.' && word.charAt(1) != '.') {
+            return new CompletionContext(Kind.JAVA_METHOD, word, null, word.substring(1));
+        }
+
+        int slash = word.indexOf('/');
+        if (slash > 0) {
+            var qualifier = word.substring(0, slash);
+            var kind = looksLikeClass(qualifier) ? Kind.JAVA_STATIC : Kind.QUALIFIED;
+            return new CompletionContext(kind, word, qualifier, word.substring(slash + 1));
+        }
+
+        if (depth > 0 && frameKinds[depth - 1] == IncrementalToken.Kind.LIST_OPEN && frameCounts[depth - 1] == 0) {
+            return new CompletionContext(Kind.FUNCTION, word, null, word);
+        }
+        return new CompletionContext(Kind.SYMBOL, word, null, word);
+    }
+}
@@ -0,0 +1,54 @@
+package org.poa.cljt.complete;
+
+import org.jline.reader.Candidate;
+import org.jline.reader.Completer;
+import org.jline.reader.LineReader;
+import org.jline.reader.ParsedLine;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * Completes through a completer that is still being built, e.g. while the Clojure runtime and the symbol index load in
+ * the background.
+ * <p>
+ * Until the completer is ready each completion waits for it for at most a short grace period, then answers from a
+ * fallback instead. Once ready, calls go straight to it. If building it failed, the fallback is used for good.
+ */
+public class DeferredCompleter implements Completer {
+    static Logger logger = Logger.getLogger(DeferredCompleter.class.getName());
+
+    private final CompletableFuture<? extends Completer> ready;
+    private final Completer fallback;
+    private final long waitNanos;
+
+    public DeferredCompleter(CompletableFuture<? extends Completer> ready, Completer fallback, Duration wait) {
+        this.ready = ready;
+        this.fallback = fallback;
+        this.waitNanos = wait.toNanos();
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    @Override
+    public void complete(LineReader reader, ParsedLine line, List<Candidate> candidates) {
+        Completer delegate = fallback;
+        try {
+            delegate = ready.isDone() ? ready.join() : ready.get(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Not ready yet
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            logger.warning("Completer failed to load: " + e.getMessage());
+        }
+        delegate.complete(reader, line, candidates);
+    }
+}
@@ -0,0 +1,25 @@
+package org.poa.cljt.complete;
+
+import org.jline.reader.CompletingParsedLine;
+import org.jline.reader.LineReader;
+import org.jline.reader.impl.CompletionMatcherImpl;
+
+import java.util.Map;
+
+/**
+ * JLine's default completion matcher with a final fuzzy fallback.
+ * <p>
+ * JLine tries its matchers in order and keeps the first non-empty result, so prefix and substring matches still win
+ * whenever they exist. Only when none exist are the ranked fuzzy candidates produced by the completer kept, instead of
+ * being filtered away.
+ */
+public class FuzzyCompletionMatcher extends CompletionMatcherImpl {
+
+    @Override
+    protected void defaultMatchers(Map<LineReader.Option, Boolean> options, boolean prefix, CompletingParsedLine line,
+                                   boolean caseInsensitive, int errors, String originalGroupName) {
+        super.defaultMatchers(options, prefix, line, caseInsensitive, errors, originalGroupName);
+        String word = prefix ? line.word().substring(0, line.wordCursor()) : line.word();
+        matchers.add(simpleMatcher(s -> FuzzyMatcher.score(word, s) != FuzzyMatcher.NO_MATCH));
+    }
+}
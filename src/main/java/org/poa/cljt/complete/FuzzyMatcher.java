@@ -0,0 +1,224 @@
+package org.poa.cljt.complete;
+
+/**
+ * Scores subsequence matches of a pattern against symbol names and keeps the best K of them.
+ * <p>
+ * A pattern matches when its characters appear in order in the name, ignoring case. Matches at the start of a
+ * kebab-case or dotted segment ({@code m-v} against {@code map-vals}), at a camel-case hump, at the start of the name
+ * or directly after the previous match score higher, and gaps cost a little. Scores are plain ints and selection uses
+ * a bounded min-heap over primitive arrays, so ranking thousands of names allocates nothing.
+ * <p>
+ * Instances hold their selection buffers and are not thread safe.
+ */
+public class FuzzyMatcher {
+    public static final int NO_MATCH = Integer.MIN_VALUE;
+
+    private static final int MATCH = 16;
+    private static final int SEGMENT_START = 24;
+    private static final int NAME_START = 32;
+    private static final int CONSECUTIVE = 16;
+    private static final int GAP = 1;
+    private static final int LENGTH = 1;
+
+    private final int capacity;
+    private final int[] heapIndices;
+    private final int[] heapScores;
+    private int count;
+
+    public FuzzyMatcher(int capacity) {
+        this.capacity = capacity;
+        this.heapIndices = new int[capacity];
+        this.heapScores = new int[capacity];
+    }
+
+    private static boolean isSeparator(char c) {
+        return switch (c) {
+            case '-', '.', '/', '_', '?', '!', '*', '>', '<', '$', ':' -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isSegmentStart(String name, int index) {
+        if (index == 0) {
+            return true;
+        }
+        char previous = name.charAt(index - 1);
+        char current = name.charAt(index);
+        return isSeparator(previous) || (Character.isLowerCase(previous) && Character.isUpperCase(current));
+    }
+
+    private static boolean sameIgnoringCase(char a, char b) {
+        return a == b || Character.toLowerCase(a) == Character.toLowerCase(b);
+    }
+
+    /**
+     * Score a name against a pattern.
+     *
+     * @return The score, higher is better, or {@link #NO_MATCH}
+     */
+    public static int score(CharSequence pattern, String name) {
+        int patternLength = pattern.length();
+        if (patternLength == 0) {
+            return 0;
+        }
+        if (patternLength > name.length()) {
+            return NO_MATCH;
+        }
+
+        int score = 0;
+        int p = 0;
+        int lastMatch = -1;
+        for (int i = 0; i < name.length() && p < patternLength; i++) {
+            char pc = pattern.charAt(p);
+            char nc = name.charAt(i);
+            if (!sameIgnoringCase(pc, nc)) {
+                continue;
+            }
+            // Prefer a later segment start over a mid-word match for letters, e.g. the 'v' of map-vals in "m-v"
+            if (!isSegmentStart(name, i) && lastMatch != i - 1) {
+                int segment = nextSegmentStart(name, i + 1, pc);
+                if (segment >= 0 && isSubsequence(pattern, p + 1, name, segment + 1)) {
+                    i = segment;
+                }
+            }
+
+            score += MATCH;
+            if (i == 0) {
+                score += NAME_START;
+            } else if (isSegmentStart(name, i)) {
+                score += SEGMENT_START;
+            }
+            if (lastMatch >= 0) {
+                if (lastMatch == i - 1) {
+                    score += CONSECUTIVE;
+                } else {
+                    score -= GAP * (i - lastMatch - 1);
+                }
+            }
+            lastMatch = i;
+            p++;
+        }
+        if (p < patternLength) {
+            return NO_MATCH;
+        }
+        return score - LENGTH * (name.length() - patternLength);
+    }
+
+    private static boolean isSubsequence(CharSequence pattern, int p, String name, int from) {
+        for (int i = from; i < name.length() && p < pattern.length(); i++) {
+            if (sameIgnoringCase(pattern.charAt(p), name.charAt(i))) {
+                p++;
+            }
+        }
+        return p == pattern.length();
+    }
+
+    private static int nextSegmentStart(String name, int from, char c) {
+        for (int i = from; i < name.length(); i++) {
+            if (sameIgnoringCase(c, name.charAt(i)) && isSegmentStart(name, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Select the best matching names. Selection stops early, keeping the best names seen so far, if the calling
+     * thread is interrupted.
+     *
+     * @return The number of selected names, at most the capacity of this matcher
+     */
+    public int select(CharSequence pattern, String[] names) {
+        count = 0;
+        for (int i = 0; i < names.length; i++) {
+            if ((i & 1023) == 1023 && Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            int score = score(pattern, names[i]);
+            if (score == NO_MATCH) {
+                continue;
+            }
+            if (count < capacity) {
+                heapIndices[count] = i;
+                heapScores[count] = score;
+                siftUp(count++);
+            } else if (capacity > 0 && score > heapScores[0]) {
+                heapIndices[0] = i;
+                heapScores[0] = score;
+                siftDown(0, count);
+            }
+        }
+
+        // Heap sort in place; the min-heap leaves the best match at the front
+        for (int end = count - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        return count;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return The index into the selected names of the rank-th best match
+     */
+    public int index(int rank) {
+        return heapIndices[rank];
+    }
+
+    public int score(int rank) {
+        return heapScores[rank];
+    }
+
+    /**
+     * Order of the min-heap: the lower score is "smaller", and on equal scores the later name is, so earlier (sorted)
+     * names win ties.
+     */
+    private boolean less(int a, int b) {
+        if (heapScores[a] != heapScores[b]) {
+            return heapScores[a] < heapScores[b];
+        }
+        return heapIndices[a] > heapIndices[b];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int size) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && less(right, left)) {
+                smallest = right;
+            }
+            if (!less(smallest, i)) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int index = heapIndices[a];
+        heapIndices[a] = heapIndices[b];
+        heapIndices[b] = index;
+        int score = heapScores[a];
+        heapScores[a] = heapScores[b];
+        heapScores[b] = score;
+    }
+}
@@ -0,0 +1,99 @@
+package org.poa.cljt.complete;
+
+import clojure.lang.IPersistentMap;
+import clojure.lang.MapEntry;
+import clojure.lang.Namespace;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Sorted member names of Java classes, for completing {@code Class/member} and {@code .method}.
+ * <p>
+ * Reflection results are cached per class in a {@link ClassValue}, so they are computed once and do not keep classes
+ * from being unloaded. The union of instance methods over a namespace's imports is cached against the identity of its
+ * mappings, like {@link SymbolIndex}.
+ */
+public class JavaMembers {
+    private static final ClassValue<String[]> STATIC_MEMBERS = new ClassValue<>() {
+        @Override
+        protected String[] computeValue(Class<?> type) {
+            var names = new TreeSet<String>();
+            addNames(type.getFields(), true, names);
+            addNames(type.getMethods(), true, names);
+            return names.toArray(new String[0]);
+        }
+    };
+
+    private static final ClassValue<String[]> INSTANCE_METHODS = new ClassValue<>() {
+        @Override
+        protected String[] computeValue(Class<?> type) {
+            var names = new TreeSet<String>();
+            addNames(type.getMethods(), false, names);
+            return names.toArray(new String[0]);
+        }
+    };
+
+    private Namespace importsNs;
+    private IPersistentMap importsMappings;
+    private String[] importedMethods = new String[0];
+
+    private static void addNames(Member[] members, boolean statics, TreeSet<String> out) {
+        for (var member : members) {
+            if (Modifier.isStatic(member.getModifiers()) == statics && !member.isSynthetic()) {
+                out.add(member.getName());
+            }
+        }
+    }
+
+    /**
+     * Resolve a class name as written in a namespace: an imported short name, or a fully qualified name. The class is
+     * not initialized.
+     *
+     * @return The class, or null if the name does not resolve to one
+     */
+    public static Class<?> resolve(Namespace ns, String name) {
+        if (ns != null && ns.getMapping(Symbol.intern(name)) instanceof Class<?> type) {
+            return type;
+        }
+        if (name.indexOf('.') < 0) {
+            return null;
+        }
+        try {
+            return Class.forName(name, false, RT.baseLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The public static field and method names of a class, sorted
+     */
+    public String[] staticMembers(Class<?> type) {
+        return STATIC_MEMBERS.get(type);
+    }
+
+    /**
+     * @return The public instance method names of every class imported into a namespace, sorted
+     */
+    public synchronized String[] importedMethods(Namespace ns) {
+        var mappings = ns.getMappings();
+        if (ns == importsNs && mappings == importsMappings) {
+            return importedMethods;
+        }
+        var names = new TreeSet<String>();
+        for (Object item : mappings) {
+            if (((MapEntry) item).val() instanceof Class<?> type) {
+                names.addAll(Arrays.asList(INSTANCE_METHODS.get(type)));
+            }
+        }
+        importsNs = ns;
+        importsMappings = mappings;
+        importedMethods = names.toArray(new String[0]);
+        return importedMethods;
+    }
+}
@@ -0,0 +1,57 @@
+package org.poa.cljt.complete;
+
+import clojure.lang.Keyword;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A sorted snapshot of every interned keyword, read from Clojure's keyword intern table.
+ * <p>
+ * The table is private to {@link Keyword}, so it is read reflectively; if that fails the index is simply empty. The
+ * snapshot is rebuilt when the size of the table changes, which catches keywords read since the last completion
+ * without walking the table on every key press.
+ */
+public class KeywordIndex {
+    static Logger logger = Logger.getLogger(KeywordIndex.class.getName());
+
+    private static final Map<?, ?> TABLE = lookupTable();
+
+    private String[] names = new String[0];
+    private int builtSize = -1;
+
+    private static Map<?, ?> lookupTable() {
+        try {
+            Field field = Keyword.class.getDeclaredField("table");
+            field.setAccessible(true);
+            return (Map<?, ?>) field.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.INFO, "Keyword table not accessible, keyword completion disabled", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return Every interned keyword, with its leading colon, in sorted order
+     */
+    public synchronized String[] names() {
+        if (TABLE == null) {
+            return names;
+        }
+        int size = TABLE.size();
+        if (size != builtSize) {
+            var keys = TABLE.keySet().toArray();
+            var built = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                built[i] = ":" + keys[i];
+            }
+            Arrays.sort(built);
+            names = built;
+            builtSize = size;
+        }
+        return names;
+    }
+}
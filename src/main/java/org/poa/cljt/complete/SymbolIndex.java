@@ -0,0 +1,163 @@
+package org.poa.cljt.complete;
+
+import clojure.lang.IPersistentMap;
+import clojure.lang.ISeq;
+import clojure.lang.MapEntry;
+import clojure.lang.Namespace;
+import clojure.lang.Symbol;
+import clojure.lang.Var;
+import org.jline.reader.Candidate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sorted index over the public vars of every loaded namespace, with prebuilt completion candidates.
+ * <p>
+ * Each namespace's entries are cached together with the identity of the mappings map they were built from. Clojure
+ * swaps that map whenever a var is interned, referred or unmapped, so a refresh only has to compare one reference per
+ * namespace and rebuild the namespaces that actually changed. The merged, sorted snapshot is only rebuilt when
+ * something changed; lookups are a binary search over it.
+ * <p>
+ * Snapshots are immutable, so lookups can run concurrently with a refresh on another thread.
+ */
+public class SymbolIndex {
+    private static final Comparator<Candidate> BY_VALUE = Comparator
+            .comparing(Candidate::value)
+            .thenComparing(Candidate::group, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * An immutable view of the index, sorted by candidate value.
+     *
+     * @param names      the candidate values, in order
+     * @param candidates the prebuilt candidates, parallel to {@code names}
+     */
+    public record Snapshot(String[] names, Candidate[] candidates) {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new Candidate[0]);
+
+        public int size() {
+            return names.length;
+        }
+
+        /**
+         * @return The index of the first name that is not less than {@code prefix}
+         */
+        public int lowerBound(String prefix) {
+            int lo = 0;
+            int hi = names.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (names[mid].compareTo(prefix) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Append every candidate whose name starts with {@code prefix}.
+         */
+        public void prefixMatches(String prefix, List<Candidate> out) {
+            for (int i = lowerBound(prefix); i < names.length && names[i].startsWith(prefix); i++) {
+                out.add(candidates[i]);
+            }
+        }
+    }
+
+    private record NamespaceEntry(IPersistentMap mappings, Candidate[] candidates) {
+    }
+
+    private final Map<Namespace, NamespaceEntry> namespaces = new HashMap<>();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * @return The last built snapshot, without checking namespaces for changes
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Bring the index up to date with the loaded namespaces.
+     *
+     * @return The current snapshot
+     */
+    public synchronized Snapshot refresh() {
+        boolean changed = false;
+        var seen = new IdentityHashMap<Namespace, Boolean>(namespaces.size() * 2);
+        for (ISeq seq = Namespace.all(); seq != null; seq = seq.next()) {
+            var ns = (Namespace) seq.first();
+            seen.put(ns, Boolean.TRUE);
+            var mappings = ns.getMappings();
+            var entry = namespaces.get(ns);
+            if (entry == null || entry.mappings != mappings) {
+                namespaces.put(ns, new NamespaceEntry(mappings, publicCandidates(ns, mappings)));
+                changed = true;
+            }
+        }
+        if (namespaces.size() != seen.size()) {
+            namespaces.keySet().retainAll(seen.keySet());
+            changed = true;
+        }
+
+        if (changed) {
+            snapshot = merge();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Refresh the index and append every candidate whose name starts with {@code prefix}.
+     */
+    public void complete(String prefix, List<Candidate> out) {
+        refresh().prefixMatches(prefix, out);
+    }
+
+    /**
+     * @return The public var candidates of one namespace as of the last refresh, empty if it was not indexed
+     */
+    public synchronized Candidate[] namespaceCandidates(Namespace ns) {
+        var entry = namespaces.get(ns);
+        return entry == null ? new Candidate[0] : entry.candidates;
+    }
+
+    private Snapshot merge() {
+        int total = 0;
+        for (var entry : namespaces.values()) {
+            total += entry.candidates.length;
+        }
+        var candidates = new Candidate[total];
+        int pos = 0;
+        for (var entry : namespaces.values()) {
+            System.arraycopy(entry.candidates, 0, candidates, pos, entry.candidates.length);
+            pos += entry.candidates.length;
+        }
+        Arrays.sort(candidates, BY_VALUE);
+
+        var names = new String[total];
+        for (int i = 0; i < total; i++) {
+            names[i] = candidates[i].value();
+        }
+        return new Snapshot(names, candidates);
+    }
+
+    private static Candidate[] publicCandidates(Namespace ns, IPersistentMap mappings) {
+        var nsName = ns.getName().getName();
+        var out = new ArrayList<Candidate>();
+        for (Object item : mappings) {
+            var entry = (MapEntry) item;
+            if (entry.val() instanceof Var var && var.ns == ns && var.isPublic()) {
+                var name = ((Symbol) entry.key()).getName();
+                out.add(new Candidate(name, name, nsName, null, nsName, null, true));
+            }
+        }
+        return out.toArray(new Candidate[0]);
+    }
+}
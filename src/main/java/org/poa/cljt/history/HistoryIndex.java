@@ -0,0 +1,283 @@
+package org.poa.cljt.history;
+
+import org.poa.cljt.lex.IncrementalToken;
+import org.poa.cljt.lex.IncrementalTokenScanner;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.logging.Logger;
+
+/**
+ * A trigram index over the entries of a {@link HistoryLog}, for substring and prefix searches that only decode the
+ * entries that can match.
+ * <p>
+ * Entries are tokenized with the {@link IncrementalTokenScanner}, and every three characters within a run of adjacent
+ * tokens are indexed. Only whitespace and commas separate tokens, so every three characters of a query without
+ * whitespace lie in one run of any entry containing it, even when the query starts or ends inside a symbol or string.
+ * A search decodes the candidates from its rarest trigram, newest first, and checks them. Queries without a trigram
+ * scan the entries newest first instead, which for the short, common text they hold finds a match right away.
+ * <p>
+ * The index is built lazily, on a virtual thread started by the first search, oldest entries first. Entries it has not
+ * reached yet, which includes the ones appended since, are scanned. It starts over when the log has been cleared, also
+ * through another log on the same file.
+ */
+public class HistoryIndex {
+    static Logger logger = Logger.getLogger(HistoryIndex.class.getName());
+
+    private static final int BATCH = 1024;
+
+    private final HistoryLog log;
+    private final IncrementalTokenScanner scanner = new IncrementalTokenScanner();
+    private final HashMap<Long, Postings> trigrams = new HashMap<>();
+    private int indexed;
+    /**
+     * The generation of the log the indexed entries are from.
+     */
+    private long generation;
+    private Thread indexer;
+
+    public HistoryIndex(HistoryLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Entry numbers in ascending order, delta and varint encoded.
+     */
+    private static final class Postings {
+        private byte[] data = new byte[4];
+        private int length;
+        private int count;
+        private int last = -1;
+
+        void add(int entry) {
+            if (entry == last) {
+                return;
+            }
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            int delta = entry - last;
+            while ((delta & ~0x7f) != 0) {
+                data[length++] = (byte) (delta | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            last = entry;
+            count++;
+        }
+
+        int[] toArray() {
+            var entries = new int[count];
+            int entry = -1;
+            for (int i = 0, n = 0; i < length; n++) {
+                int delta = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = data[i++];
+                    delta |= (b & 0x7f) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                entry += delta;
+                entries[n] = entry;
+            }
+            return entries;
+        }
+    }
+
+    private static long trigram(CharSequence text, int at) {
+        return (long) text.charAt(at) << 32 | (long) text.charAt(at + 1) << 16 | text.charAt(at + 2);
+    }
+
+    private static boolean isSeparator(char c) {
+        return Character.isWhitespace(c) || c == ',';
+    }
+
+    private void add(int entry, String line) {
+        scanner.reset(line);
+        int runStart = -1;
+        int runEnd = -1;
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            if (scanner.tokenStart() != runEnd) {
+                addRun(entry, line, runStart, runEnd);
+                runStart = scanner.tokenStart();
+            }
+            runEnd = scanner.tokenEnd();
+        }
+        addRun(entry, line, runStart, runEnd);
+    }
+
+    private void addRun(int entry, String line, int start, int end) {
+        for (int i = start; i + 3 <= end; i++) {
+            trigrams.computeIfAbsent(trigram(line, i), k -> new Postings()).add(entry);
+        }
+    }
+
+    /**
+     * Index the entries below {@code end} that are not indexed yet.
+     */
+    synchronized void indexUpTo(int end) throws IOException {
+        checkGeneration();
+        end = Math.min(end, log.size());
+        for (; indexed < end; indexed++) {
+            add(indexed, log.line(indexed));
+        }
+    }
+
+    /**
+     * Forget everything indexed if the log has been cleared since.
+     */
+    private synchronized void checkGeneration() throws IOException {
+        long current = log.generation();
+        if (current != generation) {
+            clear();
+            generation = current;
+        }
+    }
+
+    synchronized int indexed() {
+        return indexed;
+    }
+
+    private synchronized void startIndexing() throws IOException {
+        if (indexer == null && indexed < log.size()) {
+            indexer = Thread.ofVirtual().name("history-index").start(this::indexLoop);
+        }
+    }
+
+    private void indexLoop() {
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                synchronized (this) {
+                    if (indexed >= log.size()) {
+                        indexer = null;
+                        break;
+                    }
+                    // In batches, so searches get their turn
+                    indexUpTo(indexed + BATCH);
+                }
+                Thread.yield();
+            }
+            logger.fine(() -> "Indexed " + indexed() + " history entries in "
+                    + (System.nanoTime() - start) / 1_000_000 + "ms");
+        } catch (IOException e) {
+            logger.warning("Indexing history failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The indexed entries that may contain the query in ascending order, or null if it has no trigram
+     */
+    private synchronized int[] candidates(String query) {
+        Postings rarest = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            if (isSeparator(query.charAt(i)) || isSeparator(query.charAt(i + 1)) || isSeparator(query.charAt(i + 2))) {
+                continue;
+            }
+            var postings = trigrams.get(trigram(query, i));
+            if (postings == null) {
+                return new int[0];
+            }
+            if (rarest == null || postings.count < rarest.count) {
+                rarest = postings;
+            }
+        }
+        return rarest == null ? null : rarest.toArray();
+    }
+
+    private boolean matches(int entry, String query, boolean prefix) throws IOException {
+        var line = log.line(entry);
+        return prefix ? line.startsWith(query) : line.contains(query);
+    }
+
+    /**
+     * @param before search the entries below this one
+     * @param prefix match entries starting with the query rather than containing it
+     * @return The newest matching entry, or -1
+     */
+    public int searchBackward(String query, int before, boolean prefix) throws IOException {
+        checkGeneration();
+        int end = Math.min(before, log.size());
+        if (end <= 0) {
+            return -1;
+        }
+        startIndexing();
+        int indexedEnd;
+        int[] candidates;
+        synchronized (this) {
+            indexedEnd = Math.min(indexed, end);
+            candidates = candidates(query);
+        }
+        for (int entry = end - 1; entry >= indexedEnd; entry--) {
+            if (matches(entry, query, prefix)) {
+                return entry;
+            }
+        }
+        if (candidates == null) {
+            for (int entry = indexedEnd - 1; entry >= 0; entry--) {
+                if (matches(entry, query, prefix)) {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+        for (int i = candidates.length - 1; i >= 0; i--) {
+            int entry = candidates[i];
+            if (entry < indexedEnd && matches(entry, query, prefix)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param after search the entries above this one
+     * @param prefix match entries starting with the query rather than containing it
+     * @return The oldest matching entry, or -1
+     */
+    public int searchForward(String query, int after, boolean prefix) throws IOException {
+        checkGeneration();
+        int size = log.size();
+        int start = Math.max(after + 1, 0);
+        if (start >= size) {
+            return -1;
+        }
+        startIndexing();
+        int indexedEnd;
+        int[] candidates;
+        synchronized (this) {
+            indexedEnd = indexed;
+            candidates = candidates(query);
+        }
+        if (candidates == null) {
+            for (int entry = start; entry < indexedEnd; entry++) {
+                if (matches(entry, query, prefix)) {
+                    return entry;
+                }
+            }
+        } else {
+            int from = Arrays.binarySearch(candidates, start);
+            for (int i = from < 0 ? -from - 1 : from; i < candidates.length; i++) {
+                if (matches(candidates[i], query, prefix)) {
+                    return candidates[i];
+                }
+            }
+        }
+        for (int entry = Math.max(start, indexedEnd); entry < size; entry++) {
+            if (matches(entry, query, prefix)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Forget everything indexed, after the log has been cleared.
+     */
+    synchronized void clear() {
+        trigrams.clear();
+        indexed = 0;
+    }
+}
@@ -0,0 +1,264 @@
+package org.poa.cljt.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * An append-only file of history entries, read through a memory mapping.
+ * <p>
+ * After a 16 byte header, every entry is a record of its UTF-8 length as an int, its time as epoch milliseconds and
+ * its text, so multi-line forms need no escaping. Opening the file reads only the header. Record offsets are found on
+ * first use by hopping from length to length, without decoding any text, and an entry's text is decoded when it is
+ * asked for. Appends take a file lock and go to the end of the file as it is then, so several processes, and the
+ * sessions of one process, can share a log; records others appended show up the next time the log is read. Clearing
+ * counts up a generation in the header, which tells the other logs on the file that the offsets they found are gone,
+ * even once new records have grown the file past them. The file is mapped again only once a megabyte has been
+ * appended past the mapping, and records past it are read from the file meanwhile, so interactive use does not pile
+ * up mappings.
+ */
+public class HistoryLog implements AutoCloseable {
+    private static final int MAGIC = 0x434c4a48; // CLJH
+    private static final int VERSION = 2;
+    /**
+     * Where the header keeps the number of times the file has been cleared, as a long.
+     */
+    private static final int GENERATION_OFFSET = 8;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    /**
+     * How much may be appended before the file is mapped again; records past the mapping are read from the file.
+     */
+    private static final long REMAP_THRESHOLD = 1 << 20;
+
+    private final FileChannel channel;
+    /**
+     * The header, which the file is never truncated below, so the generation can be checked without a system call.
+     */
+    private final MappedByteBuffer headerMap;
+    /**
+     * The generation the offsets were found in.
+     */
+    private long generation;
+    private MappedByteBuffer map;
+    private long mappedSize;
+    /**
+     * The end of the last complete record found so far.
+     */
+    private long scannedEnd = HEADER_SIZE;
+    /**
+     * The size of the file when it was last scanned.
+     */
+    private long scannedSize = HEADER_SIZE;
+    private long[] offsets = new long[256];
+    private int count;
+
+    private HistoryLog(FileChannel channel, MappedByteBuffer headerMap) {
+        this.channel = channel;
+        this.headerMap = headerMap;
+        this.generation = headerMap.getLong(GENERATION_OFFSET);
+    }
+
+    /**
+     * Open a log, creating the file and its directory if they do not exist yet.
+     */
+    public static HistoryLog open(Path path) throws IOException {
+        var parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer headerMap;
+        try (var _ = channel.lock()) {
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.size() == 0) {
+                channel.write(header.putInt(MAGIC).putInt(VERSION).putLong(0).flip(), 0);
+            } else if (channel.read(header, 0) < 2 * Integer.BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a history log");
+            } else if (header.getInt(4) != VERSION) {
+                throw new IOException(path + " has unsupported history log version " + header.getInt(4));
+            } else if (header.position() < HEADER_SIZE) {
+                throw new IOException(path + " has a truncated history log header");
+            }
+            headerMap = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new HistoryLog(channel, headerMap);
+    }
+
+    private long currentGeneration() {
+        return headerMap.getLong(GENERATION_OFFSET);
+    }
+
+    /**
+     * Forget every offset found, and the mapping, which is no longer safe to read once the file has been truncated.
+     */
+    private void reset(long generation) {
+        this.generation = generation;
+        map = null;
+        mappedSize = 0;
+        scannedEnd = HEADER_SIZE;
+        scannedSize = HEADER_SIZE;
+        count = 0;
+    }
+
+    /**
+     * Find the records appended since the last call, starting over if the file has been cleared since.
+     */
+    private void refresh() throws IOException {
+        long size = channel.size();
+        long current = currentGeneration();
+        while (current != generation || size != scannedSize) {
+            if (current != generation || size < scannedEnd) {
+                // Cleared by another log on the same file; a crash between truncating and counting up the
+                // generation only shows in the size
+                reset(current);
+            }
+            scan(size);
+            // A clear while scanning would leave offsets into the records appended after it, so look again
+            size = channel.size();
+            current = currentGeneration();
+        }
+    }
+
+    private void scan(long size) throws IOException {
+        scannedSize = size;
+        if (mappedSize == 0 && size > HEADER_SIZE || size - mappedSize > REMAP_THRESHOLD) {
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mappedSize = size;
+        }
+        while (scannedEnd + RECORD_HEADER_SIZE <= size) {
+            int length = read(scannedEnd, Integer.BYTES).getInt();
+            long end = scannedEnd + RECORD_HEADER_SIZE + length;
+            if (length < 0 || end > size) {
+                // A record still being written, or cut short by a crash
+                break;
+            }
+            addOffset(scannedEnd);
+            scannedEnd = end;
+        }
+    }
+
+    /**
+     * @return The number of times the file has been cleared, as of the last read
+     */
+    synchronized long generation() throws IOException {
+        refresh();
+        return generation;
+    }
+
+    /**
+     * Read from the mapping, or from the file for what was appended since it was mapped.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (position + length <= mappedSize) {
+            return map.slice((int) position, length);
+        }
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("History log truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void addOffset(long offset) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = offset;
+    }
+
+    public synchronized int size() throws IOException {
+        refresh();
+        return count;
+    }
+
+    private long offset(int index) throws IOException {
+        if (index >= count || currentGeneration() != generation) {
+            refresh();
+        }
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Entry " + index + " of " + count);
+        }
+        return offsets[index];
+    }
+
+    public synchronized String line(int index) throws IOException {
+        long offset = offset(index);
+        int length = read(offset, Integer.BYTES).getInt();
+        if (length < 0 || offset + RECORD_HEADER_SIZE + length > scannedEnd) {
+            // The scan checked this length, so the file has changed under the log
+            throw new IOException("History log entry " + index + " changed while reading it");
+        }
+        var text = read(offset + RECORD_HEADER_SIZE, length);
+        if (text.hasArray()) {
+            return new String(text.array(), text.arrayOffset(), length, StandardCharsets.UTF_8);
+        }
+        var bytes = new byte[length];
+        text.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public synchronized Instant time(int index) throws IOException {
+        return Instant.ofEpochMilli(read(offset(index) + Integer.BYTES, Long.BYTES).getLong());
+    }
+
+    /**
+     * @return The index of the new entry
+     */
+    public synchronized int append(Instant time, String line) throws IOException {
+        var text = line.getBytes(StandardCharsets.UTF_8);
+        var record = ByteBuffer.allocate(RECORD_HEADER_SIZE + text.length)
+                .putInt(text.length)
+                .putLong(time.toEpochMilli())
+                .put(text)
+                .flip();
+        try (var _ = channel.lock()) {
+            refresh();
+            if (channel.size() > scannedEnd) {
+                // Writers and clears hold the lock, and the refresh scanned the file as it is in this generation, so
+                // this is a record cut short by a crash
+                channel.truncate(scannedEnd);
+            }
+            long offset = scannedEnd;
+            while (record.hasRemaining()) {
+                channel.write(record, offset + record.position());
+            }
+            addOffset(offset);
+            scannedEnd = offset + record.limit();
+            scannedSize = scannedEnd;
+        }
+        return count - 1;
+    }
+
+    /**
+     * Remove every entry, for every process sharing the file.
+     */
+    public synchronized void clear() throws IOException {
+        try (var _ = channel.lock()) {
+            // Truncated first, so a log that reads the new generation never finds the old records
+            long next = currentGeneration() + 1;
+            channel.truncate(HEADER_SIZE);
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(next).flip(), GENERATION_OFFSET);
+            reset(next);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mappedSize = 0;
+        channel.close();
+    }
+}
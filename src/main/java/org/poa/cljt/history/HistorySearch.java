@@ -0,0 +1,124 @@
+package org.poa.cljt.history;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.impl.LineReaderImpl;
+
+/**
+ * Replaces JLine's history search widgets with ones that search an {@link IndexedHistory} through its index.
+ * <p>
+ * JLine's widgets step through the history one entry at a time, decoding each, so a search that matches nothing
+ * reads the whole history. Ctrl-R searches for entries containing the query, newest first: typing narrows the search
+ * from the current match, Ctrl-R and Ctrl-S move to the previous and next match, Backspace widens it again and Ctrl-G
+ * gives up. Any other key keeps the match and goes on to do what it does, so Enter accepts it. The search state is
+ * shown in the right prompt. The prefix search widgets look for entries starting with the text before the cursor.
+ */
+public class HistorySearch {
+    private static final int CTRL_G = 7;
+    private static final int CTRL_H = 8;
+    private static final int CTRL_R = 18;
+    private static final int CTRL_S = 19;
+    private static final int DELETE = 127;
+
+    private final LineReader reader;
+    private final IndexedHistory history;
+
+    HistorySearch(LineReader reader, IndexedHistory history) {
+        this.reader = reader;
+        this.history = history;
+    }
+
+    public static void install(LineReader reader, IndexedHistory history) {
+        var search = new HistorySearch(reader, history);
+        var widgets = reader.getWidgets();
+        if (reader instanceof LineReaderImpl impl) {
+            widgets.put(LineReader.HISTORY_INCREMENTAL_SEARCH_BACKWARD, () -> search.incrementalSearch(impl));
+        }
+        widgets.put(LineReader.HISTORY_SEARCH_BACKWARD, () -> search.prefixSearch(true));
+        widgets.put(LineReader.HISTORY_SEARCH_FORWARD, () -> search.prefixSearch(false));
+    }
+
+    private boolean prefixSearch(boolean backward) {
+        var buffer = reader.getBuffer();
+        var text = buffer.toString();
+        var prefix = text.substring(0, buffer.cursor());
+        int match = history.index();
+        // Skip matches identical to what is shown already
+        do {
+            match = backward ? history.searchBackward(prefix, match, true) : history.searchForward(prefix, match, true);
+        } while (match >= 0 && history.get(match).equals(text));
+        if (match < 0) {
+            return false;
+        }
+        history.moveTo(match);
+        show(history.get(match), prefix.length());
+        return true;
+    }
+
+    private void show(String text, int cursor) {
+        var buffer = reader.getBuffer();
+        buffer.clear();
+        buffer.write(text);
+        buffer.cursor(cursor);
+    }
+
+    private boolean incrementalSearch(LineReaderImpl impl) {
+        var buffer = reader.getBuffer();
+        var original = buffer.toString();
+        int originalCursor = buffer.cursor();
+        var query = new StringBuilder();
+        int match = -1;
+        boolean failing = false;
+        try {
+            while (true) {
+                var text = match < 0 ? original : history.get(match);
+                int at = match < 0 ? -1 : text.indexOf(query.toString());
+                show(text, at < 0 ? originalCursor : at);
+                impl.setRightPrompt((failing ? "failing " : "") + "search: " + query);
+                impl.redisplay();
+
+                int c = impl.readCharacter();
+                int next;
+                switch (c) {
+                    case CTRL_R, CTRL_S -> {
+                        if (query.isEmpty()) {
+                            continue;
+                        }
+                        next = c == CTRL_R
+                                ? history.searchBackward(query.toString(), match < 0 ? history.size() : match, false)
+                                : history.searchForward(query.toString(), match, false);
+                    }
+                    case CTRL_H, DELETE -> {
+                        if (query.isEmpty()) {
+                            continue;
+                        }
+                        query.setLength(query.length() - 1);
+                        next = query.isEmpty() ? -1 : history.searchBackward(query.toString(), history.size(), false);
+                    }
+                    case CTRL_G, -1 -> {
+                        show(original, originalCursor);
+                        return true;
+                    }
+                    default -> {
+                        if (c < ' ') {
+                            if (match >= 0) {
+                                history.moveTo(match);
+                            }
+                            impl.runMacro(Character.toString(c));
+                            return true;
+                        }
+                        query.appendCodePoint(c);
+                        // The current match may still match
+                        next = history.searchBackward(query.toString(), match < 0 ? history.size() : match + 1,
+                                false);
+                    }
+                }
+                failing = !query.isEmpty() && next < 0;
+                if (!failing) {
+                    match = next;
+                }
+            }
+        } finally {
+            impl.setRightPrompt("");
+        }
+    }
+}
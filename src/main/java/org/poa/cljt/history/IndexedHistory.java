@@ -0,0 +1,295 @@
+package org.poa.cljt.history;
+
+import org.jline.reader.History;
+import org.jline.reader.LineReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.ListIterator;
+
+/**
+ * A JLine {@link History} kept in a {@link HistoryLog} and searched through a {@link HistoryIndex}.
+ * <p>
+ * Every entry is appended to the log as it is added, so there is nothing to save and nothing is lost when the
+ * process dies. Entries are never loaded as a whole: the position of the history cursor is all this holds, and
+ * entries are decoded from the log when JLine asks for them. Sessions get their own cursor over a shared log and index
+ * through {@link #newSession()}. The {@link #write}, {@link #append} and {@link #read} methods use the text format of
+ * JLine's own history files, so an existing history can be imported.
+ */
+public class IndexedHistory implements History {
+    private final HistoryLog log;
+    private final HistoryIndex index;
+    private LineReader reader;
+    private int cursor;
+
+    public IndexedHistory(HistoryLog log, HistoryIndex index) {
+        this.log = log;
+        this.index = index;
+    }
+
+    public static IndexedHistory open(Path path) throws IOException {
+        var log = HistoryLog.open(path);
+        return new IndexedHistory(log, new HistoryIndex(log));
+    }
+
+    /**
+     * @return A history with its own cursor, over the same log and index
+     */
+    public IndexedHistory newSession() {
+        return new IndexedHistory(log, index);
+    }
+
+    /**
+     * @see HistoryIndex#searchBackward
+     */
+    public int searchBackward(String query, int before, boolean prefix) {
+        try {
+            return index.searchBackward(query, before, prefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @see HistoryIndex#searchForward
+     */
+    public int searchForward(String query, int after, boolean prefix) {
+        try {
+            return index.searchForward(query, after, prefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void attach(LineReader reader) {
+        if (this.reader != reader) {
+            this.reader = reader;
+            moveToEnd();
+        }
+    }
+
+    @Override
+    public void load() {
+        moveToEnd();
+    }
+
+    /**
+     * Entries are written as they are added.
+     */
+    @Override
+    public void save() {
+    }
+
+    @Override
+    public void write(Path file, boolean incremental) throws IOException {
+        export(file, false);
+    }
+
+    @Override
+    public void append(Path file, boolean incremental) throws IOException {
+        export(file, true);
+    }
+
+    private void export(Path file, boolean append) throws IOException {
+        try (var out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            int size = log.size();
+            for (int i = 0; i < size; i++) {
+                out.write(log.time(i).toEpochMilli() + ":" + escape(log.line(i)));
+                out.newLine();
+            }
+        }
+    }
+
+    @Override
+    public void read(Path file, boolean checkDuplicates) throws IOException {
+        var previous = new ArrayList<String>();
+        for (var text : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int colon = text.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            Instant time;
+            try {
+                time = Instant.ofEpochMilli(Long.parseLong(text.substring(0, colon)));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            var line = unescape(text.substring(colon + 1));
+            if (!checkDuplicates || !previous.contains(line)) {
+                previous.add(line);
+                log.append(time, line);
+            }
+        }
+        moveToEnd();
+    }
+
+    private static String escape(String line) {
+        return line.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String text) {
+        var sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                c = switch (text.charAt(++i)) {
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> text.charAt(i);
+                };
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void purge() throws IOException {
+        log.clear();
+        index.clear();
+        cursor = 0;
+    }
+
+    @Override
+    public int size() {
+        try {
+            return log.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int index() {
+        return cursor;
+    }
+
+    @Override
+    public int first() {
+        return 0;
+    }
+
+    @Override
+    public int last() {
+        return size() - 1;
+    }
+
+    @Override
+    public String get(int index) {
+        try {
+            return log.line(index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void add(Instant time, String line) {
+        if (line.isBlank() || reader != null && Boolean.TRUE.equals(reader.getVariable(LineReader.DISABLE_HISTORY))) {
+            return;
+        }
+        try {
+            int size = log.size();
+            if (size == 0 || !log.line(size - 1).equals(line)
+                    || reader != null && !reader.isSet(LineReader.Option.HISTORY_IGNORE_DUPS)) {
+                log.append(time, line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        moveToEnd();
+    }
+
+    private record Entry(int index, Instant time, String line) implements History.Entry {
+    }
+
+    @Override
+    public ListIterator<History.Entry> iterator(int index) {
+        int size = size();
+        return new AbstractList<History.Entry>() {
+            @Override
+            public History.Entry get(int i) {
+                try {
+                    return new Entry(i, log.time(i), log.line(i));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }.listIterator(index);
+    }
+
+    @Override
+    public String current() {
+        return cursor >= size() ? "" : get(cursor);
+    }
+
+    @Override
+    public boolean previous() {
+        if (cursor <= 0) {
+            return false;
+        }
+        cursor--;
+        return true;
+    }
+
+    @Override
+    public boolean next() {
+        if (cursor >= size()) {
+            return false;
+        }
+        cursor++;
+        return true;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        if (size() > 0 && cursor != 0) {
+            cursor = 0;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean moveToLast() {
+        int last = size() - 1;
+        if (last >= 0 && last != cursor) {
+            cursor = last;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean moveTo(int index) {
+        if (index >= 0 && index < size()) {
+            cursor = index;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void moveToEnd() {
+        cursor = size();
+    }
+
+    @Override
+    public void resetIndex() {
+        cursor = Math.min(cursor, size());
+    }
+}
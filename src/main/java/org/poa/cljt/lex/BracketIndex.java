@@ -0,0 +1,231 @@
+package org.poa.cljt.lex;
+
+import java.util.Arrays;
+
+/**
+ * The brackets of a buffer with their nesting depth and matching partner, in flat primitive arrays.
+ * <p>
+ * Brackets are taken from the lexer's tokens, so brackets inside strings, comments and character literals are never
+ * counted. Any closing bracket closes the innermost open one, whatever its kind, and a closing bracket with nothing
+ * open is left unmatched without changing the depth. An open bracket has the depth of the form it appears in; a
+ * matched closing bracket has the depth of its partner.
+ * <p>
+ * Partners are stored relative to the bracket, so pairs after an edit stay valid when brackets are inserted or
+ * removed before them. After an edit, matching is redone from the start of the top-level form containing it and stops
+ * at the first top-level open bracket after it, where the old and new bracket structure agree again. Only an edit
+ * that leaves brackets unbalanced has to re-match the rest of the buffer, because it really does change every match
+ * after it.
+ */
+public class BracketIndex {
+    private static final byte LIST = 1;
+    private static final byte VECTOR = 2;
+    private static final byte MAP = 3;
+
+    private int size;
+    private int[] offsets = new int[16];
+    private int[] depths = new int[16];
+    private int[] partners = new int[16];
+    /**
+     * The bracket type, positive for open and negative for closing brackets.
+     */
+    private byte[] types = new byte[16];
+    private int[] stack = new int[16];
+
+    private int textLength;
+    private int changedFrom;
+
+    public static BracketIndex of(IncrementalLexer lexer) {
+        var index = new BracketIndex();
+        index.rebuild(lexer.tokens(), lexer.text().length());
+        return index;
+    }
+
+    private static byte typeOf(IncrementalToken.Kind kind) {
+        return switch (kind) {
+            case LIST_OPEN -> LIST;
+            case VECTOR_OPEN -> VECTOR;
+            case MAP_OPEN -> MAP;
+            case LIST_CLOSE -> -LIST;
+            case VECTOR_CLOSE -> -VECTOR;
+            case MAP_CLOSE -> -MAP;
+            default -> 0;
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int offset(int i) {
+        return offsets[i];
+    }
+
+    public int depth(int i) {
+        return depths[i];
+    }
+
+    public boolean isOpen(int i) {
+        return types[i] > 0;
+    }
+
+    /**
+     * @return The index of the matching bracket, or -1 if there is none
+     */
+    public int partner(int i) {
+        return partners[i] == 0 ? -1 : i + partners[i];
+    }
+
+    /**
+     * @return If the bracket is matched by a bracket of the same kind
+     */
+    public boolean isMatched(int i) {
+        return partners[i] != 0 && types[i + partners[i]] == -types[i];
+    }
+
+    /**
+     * @return The index of the first bracket at or after an offset
+     */
+    public int indexFrom(int offset) {
+        int idx = Arrays.binarySearch(offsets, 0, size, offset);
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    /**
+     * @return The index of the bracket at an offset, or -1 if there is none
+     */
+    public int indexAt(int offset) {
+        int idx = indexFrom(offset);
+        return idx < size && offsets[idx] == offset ? idx : -1;
+    }
+
+    /**
+     * @return The offset of the bracket matching the bracket at an offset, or -1 if either does not exist
+     */
+    public int matchingOffset(int offset) {
+        int idx = indexAt(offset);
+        if (idx < 0 || partners[idx] == 0) {
+            return -1;
+        }
+        return offsets[idx + partners[idx]];
+    }
+
+    /**
+     * @return The first offset whose bracket depth or partner may have changed in the last update
+     */
+    public int changedFrom() {
+        return changedFrom;
+    }
+
+    /**
+     * Index every bracket from scratch.
+     */
+    public void rebuild(TokenSpans tokens, int textLength) {
+        this.textLength = textLength;
+        size = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            byte type = typeOf(tokens.kind(i));
+            if (type != 0) {
+                ensureCapacity(size + 1);
+                offsets[size] = tokens.start(i);
+                types[size] = type;
+                size++;
+            }
+        }
+        changedFrom = 0;
+        rematch(0, size);
+    }
+
+    /**
+     * Bring the index up to date after the lexer applied an edit, using the token range it re-lexed.
+     */
+    public void update(IncrementalLexer lexer) {
+        var tokens = lexer.tokens();
+        int delta = lexer.text().length() - textLength;
+        textLength = lexer.text().length();
+        int tokenFrom = lexer.editTokenFrom();
+        int tokenTo = lexer.editTokenNewTo();
+
+        // The old and new brackets of the re-lexed range, found by offset since indices before it are unchanged
+        int regionStart = tokenFrom == 0 ? 0 : tokens.end(tokenFrom - 1);
+        int from = indexFrom(regionStart);
+        int oldTo = tokenTo < tokens.size() ? indexFrom(tokens.start(tokenTo) - delta) : size;
+        int count = 0;
+        for (int i = tokenFrom; i < tokenTo; i++) {
+            if (typeOf(tokens.kind(i)) != 0) {
+                count++;
+            }
+        }
+
+        int tail = size - oldTo;
+        ensureCapacity(from + count + tail);
+        System.arraycopy(offsets, oldTo, offsets, from + count, tail);
+        System.arraycopy(depths, oldTo, depths, from + count, tail);
+        System.arraycopy(partners, oldTo, partners, from + count, tail);
+        System.arraycopy(types, oldTo, types, from + count, tail);
+        size = from + count + tail;
+        for (int i = from + count; i < size; i++) {
+            offsets[i] += delta;
+        }
+        int b = from;
+        for (int i = tokenFrom; i < tokenTo; i++) {
+            byte type = typeOf(tokens.kind(i));
+            if (type != 0) {
+                offsets[b] = tokens.start(i);
+                types[b] = type;
+                b++;
+            }
+        }
+
+        // Back up to the open bracket of the enclosing top-level form, before which nothing can change
+        int start = from;
+        while (start > 0 && !(types[start - 1] > 0 && depths[start - 1] == 0)) {
+            start--;
+        }
+        if (start > 0) {
+            start--;
+        }
+        changedFrom = start < from ? offsets[start] : regionStart;
+        rematch(start, from + count);
+    }
+
+    /**
+     * Match brackets from {@code from}, where nothing is open, until the structure is known to agree with the old one:
+     * at a top-level open bracket past {@code regionEnd} that was also top-level before.
+     */
+    private void rematch(int from, int regionEnd) {
+        int sp = 0;
+        for (int i = from; i < size; i++) {
+            boolean open = types[i] > 0;
+            if (i >= regionEnd && sp == 0 && open && depths[i] == 0) {
+                return;
+            }
+            if (open) {
+                if (sp == stack.length) {
+                    stack = Arrays.copyOf(stack, sp * 2);
+                }
+                depths[i] = sp;
+                partners[i] = 0;
+                stack[sp++] = i;
+            } else if (sp > 0) {
+                int partner = stack[--sp];
+                partners[partner] = i - partner;
+                partners[i] = partner - i;
+                depths[i] = sp;
+            } else {
+                depths[i] = 0;
+                partners[i] = 0;
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= offsets.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, offsets.length * 2);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        depths = Arrays.copyOf(depths, newCapacity);
+        partners = Arrays.copyOf(partners, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+    }
+}
@@ -0,0 +1,444 @@
+package org.poa.cljt.lex;
+
+/**
+ * A persistent, rope-like tree over the token stream of a buffer that answers bracket structure questions in
+ * O(log n).
+ * <p>
+ * Tokens are the leaves of a height balanced (AVL) tree. Each node caches the aggregates of its subtree: the number
+ * of tokens, its span in characters, the net bracket depth change, the lowest depth reached relative to the start of
+ * the subtree and the number of incomplete tokens. Offsets are never stored, only per-token advances, so edits do not
+ * have to shift anything. An edit splits the tree around the changed tokens and joins it back together, copying only
+ * the O(log n) nodes on those paths; all other subtrees are shared with the previous version.
+ * <p>
+ * Depths are tracked over {@code LIST_OPEN}, {@code VECTOR_OPEN}, {@code MAP_OPEN} and their closing kinds. Brackets
+ * inside strings, comments and character literals are part of those tokens and never counted. Instances are
+ * immutable and safe to share between threads.
+ */
+public final class FormTree {
+    public static final FormTree EMPTY = new FormTree(null);
+
+    private static final class Node {
+        final Node left;
+        final Node right;
+
+        final IncrementalToken.Kind kind;
+        final int advance;
+        final int length;
+        final boolean complete;
+
+        final int height;
+        final int size;
+        final int chars;
+        final int delta;
+        final int minDepth;
+        final int incomplete;
+
+        Node(Node left, IncrementalToken.Kind kind, int advance, int length, boolean complete, Node right) {
+            this.left = left;
+            this.right = right;
+            this.kind = kind;
+            this.advance = advance;
+            this.length = length;
+            this.complete = complete;
+
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + 1 + size(right);
+            this.chars = chars(left) + advance + chars(right);
+            int leftDelta = delta(left);
+            int selfDelta = bracketDelta(kind);
+            this.delta = leftDelta + selfDelta + delta(right);
+            this.minDepth = Math.min(minDepth(left), leftDelta + selfDelta + minDepth(right));
+            this.incomplete = incomplete(left) + (complete ? 0 : 1) + incomplete(right);
+        }
+
+        /**
+         * Copy the token of this node with new children.
+         */
+        Node with(Node left, Node right) {
+            if (left == this.left && right == this.right) {
+                return this;
+            }
+            return new Node(left, kind, advance, length, complete, right);
+        }
+    }
+
+    private record Split(Node left, Node right) {
+    }
+
+    private final Node root;
+
+    private FormTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Build a tree from a complete list of token spans.
+     */
+    public static FormTree of(TokenSpans tokens) {
+        return new FormTree(build(tokens, 0, tokens.size()));
+    }
+
+    /**
+     * Build a tree from the current tokens of a lexer.
+     */
+    public static FormTree of(IncrementalLexer lexer) {
+        return of(lexer.tokens());
+    }
+
+    /**
+     * Derive the tree for the state of a lexer after its last edit, assuming this tree reflects the lexer's tokens
+     * from before that edit.
+     */
+    public FormTree withEdit(IncrementalLexer lexer) {
+        var tokens = lexer.tokens();
+        int from = lexer.editTokenFrom();
+        int oldTo = lexer.editTokenOldTo();
+        int newTo = lexer.editTokenNewTo();
+        // The first token after the re-lexed range is unchanged, but the gap before it may have changed
+        if (newTo < tokens.size()) {
+            oldTo++;
+            newTo++;
+        }
+        return replace(from, oldTo, tokens, from, newTo);
+    }
+
+    /**
+     * Replace the tokens [from, to) of this tree with the spans [spansFrom, spansTo) of {@code tokens}.
+     * {@code tokens} must be the complete token list after the replacement, as advances are derived from the end
+     * of the preceding span.
+     */
+    public FormTree replace(int from, int to, TokenSpans tokens, int spansFrom, int spansTo) {
+        var head = split(root, from);
+        var tail = split(head.right, to - from);
+        var middle = build(tokens, spansFrom, spansTo);
+        return new FormTree(concat(concat(head.left, middle), tail.right));
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * @return The offset of the end of the last token
+     */
+    public int length() {
+        return chars(root);
+    }
+
+    /**
+     * @return The number of opening brackets that are never closed
+     */
+    public int unclosed() {
+        return delta(root) - minDepth(root);
+    }
+
+    /**
+     * @return The number of closing brackets without an opening partner
+     */
+    public int unmatchedClosed() {
+        return -minDepth(root);
+    }
+
+    public boolean isBalanced() {
+        return root == null || (root.delta == 0 && root.minDepth == 0);
+    }
+
+    /**
+     * @return If every bracket is balanced and no token (such as a string) is left incomplete
+     */
+    public boolean isComplete() {
+        return isBalanced() && incomplete(root) == 0;
+    }
+
+    public IncrementalToken.Kind kind(int index) {
+        return nodeAt(index).kind;
+    }
+
+    public boolean complete(int index) {
+        return nodeAt(index).complete;
+    }
+
+    public int tokenEnd(int index) {
+        Node node = root;
+        int offset = 0;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return offset + chars(node.left) + node.advance;
+            } else {
+                offset += chars(node.left) + node.advance;
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    public int tokenStart(int index) {
+        return tokenEnd(index) - nodeAt(index).length;
+    }
+
+    /**
+     * @return The bracket depth before the token at {@code index}, or after the last token for {@link #size()}
+     */
+    public int depthBefore(int index) {
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (index <= leftSize) {
+                node = node.left;
+            } else {
+                depth += delta(node.left) + bracketDelta(node.kind);
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * @return The number of tokens that start before {@code offset}
+     */
+    public int countStartingBefore(int offset) {
+        Node node = root;
+        int count = 0;
+        int base = 0;
+        while (node != null) {
+            int end = base + chars(node.left) + node.advance;
+            if (end - node.length < offset) {
+                count += size(node.left) + 1;
+                base = end;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The index of the token covering {@code offset}, or -1 if the offset is between tokens
+     */
+    public int tokenAt(int offset) {
+        int index = countStartingBefore(offset + 1) - 1;
+        if (index < 0 || tokenEnd(index) <= offset) {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Find the partner of an opening or closing bracket.
+     *
+     * @return The index of the matching bracket, or -1 if the token is not a bracket or has no partner
+     */
+    public int matching(int index) {
+        int d = bracketDelta(kind(index));
+        if (d > 0) {
+            int end = firstAtOrBelow(root, 0, 0, index + 1, depthBefore(index));
+            return end < 0 ? -1 : end - 1;
+        } else if (d < 0) {
+            return lastAtOrBelow(root, 0, 0, index, depthBefore(index + 1));
+        }
+        return -1;
+    }
+
+    /**
+     * Find the innermost bracket that is open at {@code offset}, i.e. the start of the form the offset is in.
+     *
+     * @return The index of the opening bracket, or -1 at the top level
+     */
+    public int enclosingOpen(int offset) {
+        int before = countStartingBefore(offset);
+        if (before == 0) {
+            return -1;
+        }
+        return lastAtOrBelow(root, 0, 0, before - 1, depthBefore(before) - 1);
+    }
+
+    /**
+     * Smallest position p >= lo in the subtree with a depth at or below the target. Positions are the gaps
+     * between tokens: position p has the depth after the first p tokens.
+     */
+    private static int firstAtOrBelow(Node node, int offset, int base, int lo, int target) {
+        if (node == null) {
+            return offset >= lo && base <= target ? offset : -1;
+        }
+        if (offset + node.size < lo || base + node.minDepth > target) {
+            return -1;
+        }
+        int found = firstAtOrBelow(node.left, offset, base, lo, target);
+        if (found >= 0) {
+            return found;
+        }
+        int after = offset + size(node.left) + 1;
+        int afterBase = base + delta(node.left) + bracketDelta(node.kind);
+        return firstAtOrBelow(node.right, after, afterBase, lo, target);
+    }
+
+    /**
+     * Largest position p <= hi in the subtree with a depth at or below the target.
+     */
+    private static int lastAtOrBelow(Node node, int offset, int base, int hi, int target) {
+        if (node == null) {
+            return offset <= hi && base <= target ? offset : -1;
+        }
+        if (offset > hi || base + node.minDepth > target) {
+            return -1;
+        }
+        int after = offset + size(node.left) + 1;
+        int afterBase = base + delta(node.left) + bracketDelta(node.kind);
+        int found = lastAtOrBelow(node.right, after, afterBase, hi, target);
+        if (found >= 0) {
+            return found;
+        }
+        return lastAtOrBelow(node.left, offset, base, hi, target);
+    }
+
+    private Node nodeAt(int index) {
+        if (index < 0 || index >= size(root)) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static int bracketDelta(IncrementalToken.Kind kind) {
+        return switch (kind) {
+            case LIST_OPEN, VECTOR_OPEN, MAP_OPEN -> 1;
+            case LIST_CLOSE, VECTOR_CLOSE, MAP_CLOSE -> -1;
+            default -> 0;
+        };
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int chars(Node node) {
+        return node == null ? 0 : node.chars;
+    }
+
+    private static int delta(Node node) {
+        return node == null ? 0 : node.delta;
+    }
+
+    private static int minDepth(Node node) {
+        return node == null ? 0 : node.minDepth;
+    }
+
+    private static int incomplete(Node node) {
+        return node == null ? 0 : node.incomplete;
+    }
+
+    private static Node build(TokenSpans tokens, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        int previousEnd = mid == 0 ? 0 : tokens.end(mid - 1);
+        return new Node(
+                build(tokens, from, mid),
+                tokens.kind(mid),
+                tokens.end(mid) - previousEnd,
+                tokens.end(mid) - tokens.start(mid),
+                tokens.complete(mid),
+                build(tokens, mid + 1, to));
+    }
+
+    // Join based AVL operations, see Blelloch et al., "Just Join for Parallel Ordered Sets"
+
+    private static Node join(Node left, Node key, Node right) {
+        int hl = height(left);
+        int hr = height(right);
+        if (hl > hr + 1) {
+            return joinRight(left, key, right);
+        } else if (hr > hl + 1) {
+            return joinLeft(left, key, right);
+        }
+        return key.with(left, right);
+    }
+
+    private static Node joinRight(Node left, Node key, Node right) {
+        Node inner = left.right;
+        if (height(inner) <= height(right) + 1) {
+            Node joined = key.with(inner, right);
+            if (height(joined) <= height(left.left) + 1) {
+                return left.with(left.left, joined);
+            }
+            return rotateLeft(left.with(left.left, rotateRight(joined)));
+        }
+        Node joined = joinRight(inner, key, right);
+        Node result = left.with(left.left, joined);
+        if (height(joined) <= height(left.left) + 1) {
+            return result;
+        }
+        return rotateLeft(result);
+    }
+
+    private static Node joinLeft(Node left, Node key, Node right) {
+        Node inner = right.left;
+        if (height(inner) <= height(left) + 1) {
+            Node joined = key.with(left, inner);
+            if (height(joined) <= height(right.right) + 1) {
+                return right.with(joined, right.right);
+            }
+            return rotateRight(right.with(rotateLeft(joined), right.right));
+        }
+        Node joined = joinLeft(left, key, inner);
+        Node result = right.with(joined, right.right);
+        if (height(joined) <= height(right.right) + 1) {
+            return result;
+        }
+        return rotateRight(result);
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        return right.with(node.with(node.left, right.left), right.right);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        return left.with(left.left, node.with(left.right, node.right));
+    }
+
+    private static Split split(Node node, int index) {
+        if (node == null) {
+            return new Split(null, null);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            var inner = split(node.left, index);
+            return new Split(inner.left, join(inner.right, node, node.right));
+        }
+        var inner = split(node.right, index - leftSize - 1);
+        return new Split(join(node.left, node, inner.left), inner.right);
+    }
+
+    private static Node concat(Node left, Node right) {
+        if (left == null) {
+            return right;
+        } else if (right == null) {
+            return left;
+        }
+        var last = split(left, left.size - 1);
+        return join(last.left, last.right, right);
+    }
+}
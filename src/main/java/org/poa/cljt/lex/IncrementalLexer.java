@@ -0,0 +1,333 @@
+package org.poa.cljt.lex;
+
+import org.poa.cljt.metrics.Metrics;
+import org.poa.cljt.metrics.Stage;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the token spans of a buffer up to date across edits without re-lexing the whole buffer.
+ * <p>
+ * A checkpoint is stored at the start of every line, recording the index of the first token that reaches into the
+ * line and whether the line begins inside a string. Line comments and dispatch characters are closed by the line
+ * break itself, so apart from strings only a character literal of a line break (backslash + newline) can reach across
+ * a line start.
+ * <p>
+ * After an edit, lexing resumes at the checkpoint of the line containing the edit and stops as soon as a freshly
+ * scanned token starts at the (shifted) offset of an old token past the edit. The lexer holds no state between
+ * tokens, so from that point on the old and new streams are identical and the old tail is kept as is.
+ */
+public class IncrementalLexer {
+
+    public enum LineState {
+        /**
+         * The line starts between tokens.
+         */
+        DEFAULT,
+        /**
+         * The line starts inside a string literal opened on a previous line.
+         */
+        STRING,
+        /**
+         * The line starts inside some other token, re-lexing restarts at the start of that token.
+         */
+        TOKEN
+    }
+
+    private final IncrementalTokenScanner scanner = new IncrementalTokenScanner();
+    private final TokenSpans tokens = new TokenSpans();
+    private final TokenSpans scratch = new TokenSpans();
+
+    private CharSequence text = "";
+
+    private int[] lineStarts = new int[16];
+    private int[] lineTokens = new int[16];
+    private LineState[] lineStates = new LineState[16];
+    private int lineCount;
+
+    private int editTokenFrom;
+    private int editTokenOldTo;
+    private int editTokenNewTo;
+
+    public IncrementalLexer() {
+        reset("");
+    }
+
+    public IncrementalLexer(CharSequence text) {
+        reset(text);
+    }
+
+    public CharSequence text() {
+        return text;
+    }
+
+    public TokenSpans tokens() {
+        return tokens;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public int lineStart(int line) {
+        return lineStarts[line];
+    }
+
+    /**
+     * @return The index of the first token that ends inside or after the given line
+     */
+    public int lineToken(int line) {
+        return lineTokens[line];
+    }
+
+    public LineState lineState(int line) {
+        return lineStates[line];
+    }
+
+    /**
+     * Find the line containing an offset.
+     */
+    public int lineAt(int offset) {
+        int idx = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return idx >= 0 ? idx : -idx - 2;
+    }
+
+    /**
+     * @return The first token index replaced by the last {@link #reset} or {@link #edit}
+     */
+    public int editTokenFrom() {
+        return editTokenFrom;
+    }
+
+    /**
+     * @return The exclusive end of the replaced token range, in indices from before the last edit
+     */
+    public int editTokenOldTo() {
+        return editTokenOldTo;
+    }
+
+    /**
+     * @return The exclusive end of the re-lexed token range, in current indices
+     */
+    public int editTokenNewTo() {
+        return editTokenNewTo;
+    }
+
+    /**
+     * @return The number of tokens scanned by the last {@link #reset} or {@link #edit}
+     */
+    public int lastRelexedTokens() {
+        return editTokenNewTo - editTokenFrom;
+    }
+
+    /**
+     * Lex a whole buffer from scratch.
+     */
+    public void reset(CharSequence text) {
+        this.text = text;
+        int oldSize = tokens.size();
+        scanner.reset(text);
+        scratch.clear();
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            scratch.add(scanner);
+        }
+        tokens.splice(0, oldSize, scratch, 0);
+
+        lineCount = 0;
+        rebuildLines(0, 0, text.length());
+
+        editTokenFrom = 0;
+        editTokenOldTo = oldSize;
+        editTokenNewTo = scratch.size();
+    }
+
+    /**
+     * Update the token spans after a single contiguous edit.
+     *
+     * @param text     the buffer contents after the edit
+     * @param offset   the offset the edit starts at
+     * @param removed  the number of characters removed at the offset
+     * @param inserted the number of characters inserted in their place
+     */
+    public void edit(CharSequence text, int offset, int removed, int inserted) {
+        this.text = text;
+        int delta = inserted - removed;
+        int editEnd = offset + inserted;
+
+        int line = lineAt(offset);
+        int lineStart = lineStarts[line];
+        int first = lineTokens[line];
+
+        scanner.reset(text, lineStart, text.length());
+        scratch.clear();
+        switch (lineStates[line]) {
+            case STRING -> {
+                scanner.resumeString(tokens.start(first), lineStart);
+                scratch.add(scanner);
+            }
+            case TOKEN -> scanner.seek(tokens.start(first));
+            case DEFAULT -> {
+            }
+        }
+
+        int old = first;
+        int syncOffset = -1;
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            int start = scanner.tokenStart();
+            if (start >= editEnd) {
+                int oldStart = start - delta;
+                while (old < tokens.size() && tokens.start(old) < oldStart) {
+                    old++;
+                }
+                if (old < tokens.size() && tokens.start(old) == oldStart) {
+                    syncOffset = start;
+                    break;
+                }
+            }
+            scratch.add(scanner);
+        }
+        int oldTo = syncOffset < 0 ? tokens.size() : old;
+
+        tokens.splice(first, oldTo, scratch, delta);
+
+        editTokenFrom = first;
+        editTokenOldTo = oldTo;
+        editTokenNewTo = first + scratch.size();
+
+        if (syncOffset < 0) {
+            lineCount = line;
+            rebuildLines(line, first, text.length());
+        } else {
+            spliceLines(line, first, syncOffset, delta, scratch.size() - (oldTo - first));
+        }
+    }
+
+    /**
+     * Update the token spans to a new buffer whose edit is not known, e.g. the buffer passed to a highlighter. The
+     * edit is taken to be the span between the common prefix and common suffix of the old and new buffer, which is
+     * exact for the single insertions and deletions of typing.
+     * <p>
+     * The buffer is kept as given, so it must not be mutated afterwards.
+     *
+     * @return If the buffer changed
+     */
+    public boolean update(CharSequence newText) {
+        var oldText = text;
+        int oldLength = oldText.length();
+        int newLength = newText.length();
+        int limit = Math.min(oldLength, newLength);
+
+        int prefix = 0;
+        while (prefix < limit && oldText.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix == oldLength && prefix == newLength) {
+            text = newText;
+            return false;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && oldText.charAt(oldLength - 1 - suffix) == newText.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+        long start = Metrics.start();
+        edit(newText, prefix, oldLength - prefix - suffix, newLength - prefix - suffix);
+        Metrics.record(Stage.LEX, start, newLength);
+        return true;
+    }
+
+    /**
+     * Recompute the checkpoints of the lines starting in [lineStarts[line], until], keeping the old checkpoints
+     * after {@code until} with their offsets and token indices shifted.
+     */
+    private void spliceLines(int line, int firstToken, int until, int delta, int tokenDelta) {
+        int oldUntil = until - delta;
+        int keepFrom = lineCount;
+        while (keepFrom > line + 1 && lineStarts[keepFrom - 1] > oldUntil) {
+            keepFrom--;
+        }
+        int keptCount = lineCount - keepFrom;
+        int[] keptStarts = Arrays.copyOfRange(lineStarts, keepFrom, lineCount);
+        int[] keptTokens = Arrays.copyOfRange(lineTokens, keepFrom, lineCount);
+        LineState[] keptStates = Arrays.copyOfRange(lineStates, keepFrom, lineCount);
+
+        lineCount = line;
+        rebuildLines(line, firstToken, until);
+
+        ensureLineCapacity(lineCount + keptCount);
+        for (int i = 0; i < keptCount; i++) {
+            lineStarts[lineCount] = keptStarts[i] + delta;
+            lineTokens[lineCount] = keptTokens[i] + tokenDelta;
+            lineStates[lineCount] = keptStates[i];
+            lineCount++;
+        }
+    }
+
+    /**
+     * Append checkpoints for the line starting at the current line index and every line break up to
+     * {@code until} (inclusive of a line starting exactly at {@code until}).
+     */
+    private void rebuildLines(int line, int firstToken, int until) {
+        int lineStart = line == 0 ? 0 : lineStarts[line];
+        int token = firstToken;
+        int pos = lineStart;
+        while (true) {
+            while (token < tokens.size() && tokens.end(token) <= pos && !straddles(token, pos)) {
+                token++;
+            }
+            ensureLineCapacity(lineCount + 1);
+            lineStarts[lineCount] = pos;
+            lineTokens[lineCount] = token;
+            if (token < tokens.size() && straddles(token, pos)) {
+                lineStates[lineCount] = tokens.kind(token) == IncrementalToken.Kind.STRING
+                        ? LineState.STRING
+                        : LineState.TOKEN;
+            } else {
+                lineStates[lineCount] = LineState.DEFAULT;
+            }
+            lineCount++;
+
+            int next = nextLineStart(pos, until);
+            if (next < 0) {
+                return;
+            }
+            pos = next;
+        }
+    }
+
+    private int nextLineStart(int from, int until) {
+        for (int i = from; i < until; i++) {
+            if (text.charAt(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A token straddles a line start when it begins before it and either continues past it, or ends right at it
+     * while depending on what follows (an unterminated string, or a character literal that looked ahead for a
+     * terminating character).
+     */
+    private boolean straddles(int token, int lineStart) {
+        if (tokens.start(token) >= lineStart) {
+            return false;
+        }
+        int end = tokens.end(token);
+        if (end == lineStart) {
+            var kind = tokens.kind(token);
+            return kind != IncrementalToken.Kind.COMMENT && kind != IncrementalToken.Kind.DISPATCH;
+        }
+        return end > lineStart;
+    }
+
+    private void ensureLineCapacity(int capacity) {
+        if (capacity <= lineStarts.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, lineStarts.length * 2);
+        lineStarts = Arrays.copyOf(lineStarts, newCapacity);
+        lineTokens = Arrays.copyOf(lineTokens, newCapacity);
+        lineStates = Arrays.copyOf(lineStates, newCapacity);
+    }
+}
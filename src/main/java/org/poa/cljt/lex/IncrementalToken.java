@@ -17,6 +17,36 @@ public record IncrementalToken(
         @Nullable String content,
         boolean complete) {
 
+    /**
+     * One shared instance per kind of complete token without content, indexed by ordinal.
+     */
+    private static final IncrementalToken[] SHARED;
+
+    static {
+        var kinds = Kind.values();
+        SHARED = new IncrementalToken[kinds.length];
+        for (var kind : kinds) {
+            SHARED[kind.ordinal()] = new IncrementalToken(kind, null, true);
+        }
+    }
+
+    /**
+     * @return The shared complete token of a kind that carries no content, such as brackets, prefixes and EOF
+     */
+    public static IncrementalToken of(Kind kind) {
+        return SHARED[kind.ordinal()];
+    }
+
+    /**
+     * Like the constructor, but returns the shared instance for complete tokens without content.
+     */
+    public static IncrementalToken of(Kind kind, @Nullable String content, boolean complete) {
+        if (content == null && complete) {
+            return SHARED[kind.ordinal()];
+        }
+        return new IncrementalToken(kind, content, complete);
+    }
+
     /**
      * Format the token's content or a representation of the token for printing.
      *
@@ -8,9 +8,9 @@ import java.io.PushbackReader;
  * This IncrementalReader only performs the tokenization task,
  * after which the tokens must be validated for correctness.
  * <p>
- * This class is currently stateless, however it may be worth keeping a
- * state at some point, so I'm only making a subset of the utility functions
- * static.
+ * The only state kept between tokens is a {@link TokenInterner} for symbol
+ * contents, so I'm only making a subset of the utility functions static.
+ * Tokens without content are the shared {@link IncrementalToken#of} instances.
  */
 public class IncrementalTokenReader {
 
@@ -50,6 +50,59 @@ public class IncrementalTokenReader {
         macroCharTable['9'] = PendingKind.NUMBER;
     }
 
+    /**
+     * Bit flags of {@link #charClass}. Commas count as whitespace, as they do for the Clojure reader.
+     */
+    static final byte WHITESPACE = 1;
+    static final byte DIGIT = 1 << 1;
+    static final byte MACRO = 1 << 2;
+    static final byte TERMINATING_MACRO = 1 << 3;
+    /**
+     * Ends a number: whitespace or any macro character.
+     */
+    static final byte TERMINAL = 1 << 4;
+    /**
+     * Ends a symbol or character literal: whitespace or a terminating macro character.
+     */
+    static final byte TOKEN_TERMINAL = 1 << 5;
+
+    /**
+     * Character classes for every UTF-16 unit, so each check in the scanning loops is one load and one mask instead
+     * of a chain of {@link Character} calls. Built from the same definitions the checks used before.
+     */
+    private static final byte[] charClass = new byte[Character.MAX_VALUE + 1];
+
+    static {
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+            boolean whitespace = ch == ',' || Character.isWhitespace(ch);
+            boolean digit = Character.isDigit(ch);
+            boolean macro = !digit && ch != '+' && ch != '-' && ch < macroCharTable.length && macroCharTable[ch] != null;
+            boolean terminatingMacro = macro && ch != '#' && ch != '\'' && ch != '%';
+
+            int flags = 0;
+            flags |= whitespace ? WHITESPACE : 0;
+            flags |= digit ? DIGIT : 0;
+            flags |= macro ? MACRO : 0;
+            flags |= terminatingMacro ? TERMINATING_MACRO : 0;
+            flags |= whitespace || macro ? TERMINAL : 0;
+            flags |= whitespace || terminatingMacro ? TOKEN_TERMINAL : 0;
+            charClass[ch] = (byte) flags;
+        }
+    }
+
+    /**
+     * Shared single character strings for ASCII, so dispatch tokens such as {@code #(} or {@code #_} never allocate
+     * their content.
+     */
+    private static final String[] ASCII_STRINGS = new String[128];
+
+    static {
+        for (int ch = 0; ch < ASCII_STRINGS.length; ch++) {
+            ASCII_STRINGS[ch] = String.valueOf((char) ch).intern();
+        }
+    }
+
+    private final TokenInterner interner = new TokenInterner();
     private long advance = 0;
 
     public long getAdvance() {
@@ -75,17 +128,46 @@ public class IncrementalTokenReader {
     }
 
 
-    private static boolean isMacroChar(int ch) {
-        return !Character.isDigit(ch) && ch != '+' && ch != '-'
-                && ch < macroCharTable.length && macroCharTable[ch] != null;
+    /**
+     * @param ch a UTF-16 unit, or -1 for end of input, which has no class
+     */
+    static boolean hasClass(int ch, byte flags) {
+        return ch >= 0 && (charClass[ch] & flags) != 0;
+    }
+
+    static boolean isWhitespace(int ch) {
+        return hasClass(ch, WHITESPACE);
+    }
+
+    static boolean isDigit(int ch) {
+        return hasClass(ch, DIGIT);
+    }
+
+    static boolean isMacroChar(int ch) {
+        return hasClass(ch, MACRO);
     }
 
-    private static boolean isTerminatingMacroChar(int ch) {
-        return ch != '#' && ch != '\'' && ch != '%' && isMacroChar(ch);
+    static boolean isTerminatingMacroChar(int ch) {
+        return hasClass(ch, TERMINATING_MACRO);
     }
 
-    private static boolean isBasicTerminal(int ch) {
-        return ch == -1 || ch == ',' || Character.isWhitespace(ch) || isMacroChar(ch);
+    static boolean isBasicTerminal(int ch) {
+        return ch == -1 || (charClass[ch] & TERMINAL) != 0;
+    }
+
+    /**
+     * @return If {@code ch} ends a symbol or character literal, including at end of input
+     */
+    static boolean isTokenTerminal(int ch) {
+        return ch == -1 || (charClass[ch] & TOKEN_TERMINAL) != 0;
+    }
+
+    /**
+     * @param codePoint a code point, or a lone surrogate
+     * @return A string of the code point, shared for ASCII
+     */
+    static String codePointString(int codePoint) {
+        return codePoint < ASCII_STRINGS.length ? ASCII_STRINGS[codePoint] : Character.toString(codePoint);
     }
 
     // TODO: Make private
@@ -96,7 +178,7 @@ public class IncrementalTokenReader {
                 return c;
             }
 
-            if (c == ',' || Character.isWhitespace(c)) {
+            if (isWhitespace(c)) {
                 continue;
             }
 
@@ -104,11 +186,11 @@ public class IncrementalTokenReader {
         }
     }
 
-    private PendingKind classifyDispatchCharacter(int c) {
+    static PendingKind classifyDispatchCharacter(int c) {
         if (c == -1) {
             return PendingKind.EOF;
         }
-        if (c == ',' || Character.isWhitespace(c)) {
+        if (isWhitespace(c)) {
             return PendingKind.INVALID;
         }
 
@@ -123,7 +205,7 @@ public class IncrementalTokenReader {
 
     private boolean indeterminateCharIsNumber(int ch1, int ch2) {
         assert ch1 == '+' || ch1 == '-';
-        return Character.isDigit(ch2);
+        return isDigit(ch2);
     }
 
     private IncrementalToken readBasicToken(PushbackReader reader, int ch1) throws IOException {
@@ -132,9 +214,9 @@ public class IncrementalTokenReader {
 
         while (true) {
             int ch = read(reader);
-            if (ch == -1 || ch == ',' || Character.isWhitespace(ch) || isTerminatingMacroChar(ch)) {
+            if (isTokenTerminal(ch)) {
                 unread(reader, ch);
-                return new IncrementalToken(IncrementalToken.Kind.TOKEN, sb.toString(), true);
+                return new IncrementalToken(IncrementalToken.Kind.TOKEN, interner.intern(sb, 0, sb.length()), true);
             }
             sb.append((char) ch);
         }
@@ -176,12 +258,11 @@ public class IncrementalTokenReader {
     }
 
     private IncrementalToken readNumber(PushbackReader reader, int c1) throws IOException {
-        assert Character.isDigit(c1) || c1 == '+' || c1 == '-';
-        // TODO: Validate numbers
-        // TODO: Check completeness
+        assert isDigit(c1) || c1 == '+' || c1 == '-';
 
         StringBuilder sb = new StringBuilder();
         sb.append((char) c1);
+        int state = NumberSyntax.next(NumberSyntax.START, c1);
 
         while (true) {
             int ch = read(reader);
@@ -190,9 +271,30 @@ public class IncrementalTokenReader {
                 break;
             }
             sb.append((char) ch);
+            state = NumberSyntax.next(state, ch);
+        }
+
+        return new IncrementalToken(IncrementalToken.Kind.NUMBER, sb.toString(), NumberSyntax.isAccepting(state));
+    }
+
+    /**
+     * Read a symbolic value such as {@code ##Inf} after its leading {@code ##}, up to the end of a symbol.
+     */
+    private IncrementalToken readSymbolicValue(PushbackReader reader) throws IOException {
+        StringBuilder sb = new StringBuilder("##");
+        int state = NumberSyntax.next(NumberSyntax.next(NumberSyntax.START, '#'), '#');
+
+        while (true) {
+            int ch = read(reader);
+            if (isTokenTerminal(ch)) {
+                unread(reader, ch);
+                break;
+            }
+            sb.append((char) ch);
+            state = NumberSyntax.next(state, ch);
         }
 
-        return new IncrementalToken(IncrementalToken.Kind.NUMBER, sb.toString(), true);
+        return new IncrementalToken(IncrementalToken.Kind.NUMBER, sb.toString(), NumberSyntax.isAccepting(state));
     }
 
     private IncrementalToken readCharacter(PushbackReader reader, int c1) throws IOException {
@@ -200,9 +302,17 @@ public class IncrementalTokenReader {
         StringBuilder sb = new StringBuilder();
         sb.append((char) c1);
 
+        // The first character after the backslash is always part of the literal, even if it is a macro character
+        // or whitespace, e.g. \( or \space
+        int first = read(reader);
+        if (first == -1) {
+            return new IncrementalToken(IncrementalToken.Kind.CHARACTER, sb.toString(), false);
+        }
+        sb.append((char) first);
+
         while (true) {
             int ch = read(reader);
-            if (ch == -1 || ch == ',' || Character.isWhitespace(ch) || isTerminatingMacroChar(ch)) {
+            if (isTokenTerminal(ch)) {
                 unread(reader, ch);
                 return new IncrementalToken(IncrementalToken.Kind.CHARACTER, sb.toString(), true);
             }
@@ -231,36 +341,44 @@ public class IncrementalTokenReader {
             unread(reader, nextChar);
             return new IncrementalToken(IncrementalToken.Kind.DISPATCH, null, false);
         }
-        if (nextChar == '(' || nextChar == '{') {
+        if (nextChar == '#') {
+            return readSymbolicValue(reader);
+        }
+        if (nextChar == '(' || nextChar == '{' || nextChar == '"') {
             unread(reader, nextChar);
+        } else if (Character.isHighSurrogate((char) nextChar)) {
+            // Dispatch on a supplementary character takes the whole surrogate pair
+            int low = read(reader);
+            if (low != -1 && Character.isLowSurrogate((char) low)) {
+                return new IncrementalToken(IncrementalToken.Kind.DISPATCH,
+                        Character.toString(Character.toCodePoint((char) nextChar, (char) low)), true);
+            }
+            unread(reader, low);
         }
 
-        return new IncrementalToken(IncrementalToken.Kind.DISPATCH, Character.toString(nextChar), true);
+        return new IncrementalToken(IncrementalToken.Kind.DISPATCH, codePointString(nextChar), true);
     }
 
 
     private IncrementalToken readOpen(int c1) {
-
-        return new IncrementalToken(
+        return IncrementalToken.of(
                 switch (c1) {
                     case '(' -> IncrementalToken.Kind.LIST_OPEN;
                     case '[' -> IncrementalToken.Kind.VECTOR_OPEN;
                     case '{' -> IncrementalToken.Kind.MAP_OPEN;
                     default -> throw new IllegalStateException("Non-open character passed to readOpen: " + c1);
-                },
-                null, true
+                }
         );
     }
 
     private IncrementalToken readClose(int c1) {
-        return new IncrementalToken(
+        return IncrementalToken.of(
                 switch (c1) {
                     case ')' -> IncrementalToken.Kind.LIST_CLOSE;
                     case '}' -> IncrementalToken.Kind.MAP_CLOSE;
                     case ']' -> IncrementalToken.Kind.VECTOR_CLOSE;
                     default -> throw new IllegalStateException("Non-open character passed to readOpen: " + c1);
-                },
-                null, true
+                }
         );
     }
 
@@ -274,7 +392,7 @@ public class IncrementalTokenReader {
     public IncrementalToken readToken(PushbackReader reader) throws IOException {
         var dispatchChar = advanceToDispatchCharacter(reader);
         if (dispatchChar == -1) {
-            return new IncrementalToken(IncrementalToken.Kind.EOF, null, true);
+            return IncrementalToken.of(IncrementalToken.Kind.EOF);
         }
         var pendingKind = classifyDispatchCharacter(dispatchChar);
         return switch (pendingKind) {
@@ -284,19 +402,19 @@ public class IncrementalTokenReader {
             case NUMBER -> readNumber(reader, dispatchChar);
             case CHARACTER -> readCharacter(reader, dispatchChar);
             case COMMENT -> readComment(reader, dispatchChar);
-            case QUOTE -> new IncrementalToken(IncrementalToken.Kind.QUOTE, null, true);
-            case UNQUOTE -> new IncrementalToken(IncrementalToken.Kind.UNQUOTE, null, true);
-            case DEREF -> new IncrementalToken(IncrementalToken.Kind.DEREF, null, true);
-            case META -> new IncrementalToken(IncrementalToken.Kind.META, null, true);
-            case SYNTAX_QUOTE -> new IncrementalToken(IncrementalToken.Kind.SYNTAX_QUOTE, null, true);
+            case QUOTE -> IncrementalToken.of(IncrementalToken.Kind.QUOTE);
+            case UNQUOTE -> IncrementalToken.of(IncrementalToken.Kind.UNQUOTE);
+            case DEREF -> IncrementalToken.of(IncrementalToken.Kind.DEREF);
+            case META -> IncrementalToken.of(IncrementalToken.Kind.META);
+            case SYNTAX_QUOTE -> IncrementalToken.of(IncrementalToken.Kind.SYNTAX_QUOTE);
             case OPEN -> readOpen(dispatchChar);
             case CLOSE -> readClose(dispatchChar);
-            case ARG -> new IncrementalToken(IncrementalToken.Kind.ARG, null, true);
+            case ARG -> IncrementalToken.of(IncrementalToken.Kind.ARG);
             case DISPATCH -> readDispatch(reader, dispatchChar);
             // TODO: Remove (Probably)
             case INVALID ->
-                    new IncrementalToken(IncrementalToken.Kind.UNKNOWN, String.valueOf((char) dispatchChar), true);
-            case EOF -> new IncrementalToken(IncrementalToken.Kind.EOF, null, true);
+                    new IncrementalToken(IncrementalToken.Kind.UNKNOWN, codePointString(dispatchChar), true);
+            case EOF -> IncrementalToken.of(IncrementalToken.Kind.EOF);
 
         };
     }
@@ -0,0 +1,328 @@
+package org.poa.cljt.lex;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An offset based counterpart to {@link IncrementalTokenReader}.
+ * <p>
+ * The scanner walks a CharSequence or char[] with an index cursor and reports each token as a
+ * (kind, start, end, complete) tuple. Nothing is allocated while scanning; the content of the current token is
+ * only materialized when {@link #tokenContent()} or {@link #toToken()} is called. Symbol contents come from a
+ * {@link TokenInterner}, and tokens without content are the shared {@link IncrementalToken#of} instances.
+ * <p>
+ * The produced token stream is identical to the one produced by {@link IncrementalTokenReader#readToken}, and
+ * {@link #tokenEnd()} is equal to the reader's {@link IncrementalTokenReader#getAdvance()} after each token.
+ * Instances are reusable through {@link #reset}, but are not thread safe.
+ */
+public class IncrementalTokenScanner {
+    private final TokenInterner interner = new TokenInterner();
+    private CharSequence source = "";
+    @Nullable
+    private char[] array;
+    private int limit;
+    private int position;
+
+    private IncrementalToken.Kind kind = IncrementalToken.Kind.EOF;
+    private int start;
+    private int end;
+    private boolean complete = true;
+    private boolean malformed;
+
+    public IncrementalTokenScanner() {
+    }
+
+    public IncrementalTokenScanner(CharSequence source) {
+        reset(source);
+    }
+
+    public IncrementalTokenScanner(char[] source) {
+        reset(source, 0, source.length);
+    }
+
+    public void reset(CharSequence source) {
+        reset(source, 0, source.length());
+    }
+
+    /**
+     * Point the scanner at a region of a CharSequence.
+     *
+     * @param source the characters to scan
+     * @param from   the offset to start scanning at
+     * @param to     the exclusive end of the scanned region, treated as end of input
+     */
+    public void reset(CharSequence source, int from, int to) {
+        this.source = source;
+        this.array = null;
+        setRegion(from, to);
+    }
+
+    /**
+     * Point the scanner at a region of a char array. The array is read directly and is not copied.
+     *
+     * @param source the characters to scan
+     * @param from   the offset to start scanning at
+     * @param to     the exclusive end of the scanned region, treated as end of input
+     */
+    public void reset(char[] source, int from, int to) {
+        this.source = "";
+        this.array = source;
+        setRegion(from, to);
+    }
+
+    private void setRegion(int from, int to) {
+        this.position = from;
+        this.limit = to;
+        this.kind = IncrementalToken.Kind.EOF;
+        this.start = from;
+        this.end = from;
+        this.complete = true;
+        this.malformed = false;
+    }
+
+    /**
+     * Move the cursor without changing the scanned region. The position must be a token boundary for the
+     * resulting stream to match a scan from the start of the input.
+     */
+    public void seek(int position) {
+        this.position = position;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public IncrementalToken.Kind tokenKind() {
+        return kind;
+    }
+
+    public int tokenStart() {
+        return start;
+    }
+
+    public int tokenEnd() {
+        return end;
+    }
+
+    public boolean tokenComplete() {
+        return complete;
+    }
+
+    /**
+     * @return If the current token is a number literal that no further characters could make valid, e.g.
+     * {@code 08}. Such a token is also incomplete.
+     */
+    public boolean tokenMalformed() {
+        return malformed;
+    }
+
+    public int tokenLength() {
+        return end - start;
+    }
+
+    private int charAt(int index) {
+        if (index >= limit) {
+            return -1;
+        }
+        return array != null ? array[index] : source.charAt(index);
+    }
+
+    /**
+     * Build the content string of the current token, following the same rules as {@link IncrementalToken#content()}.
+     *
+     * @return The token content, or null if the token kind carries no content
+     */
+    @Nullable
+    public String tokenContent() {
+        return switch (kind) {
+            case TOKEN -> array != null ? interner.intern(array, start, end) : interner.intern(source, start, end);
+            case STRING, NUMBER, CHARACTER, COMMENT, UNKNOWN -> substring(start, end);
+            case DISPATCH -> start + 1 >= limit ? null
+                    : end - start > 2 ? substring(start + 1, end)
+                    : IncrementalTokenReader.codePointString(charAt(start + 1));
+            default -> null;
+        };
+    }
+
+    @Nullable
+    static String contentOf(IncrementalToken.Kind kind, CharSequence text, int start, int end) {
+        return switch (kind) {
+            case TOKEN, STRING, NUMBER, CHARACTER, COMMENT, UNKNOWN -> text.subSequence(start, end).toString();
+            case DISPATCH -> start + 1 >= text.length() ? null
+                    : end - start > 2 ? text.subSequence(start + 1, end).toString()
+                    : IncrementalTokenReader.codePointString(text.charAt(start + 1));
+            default -> null;
+        };
+    }
+
+    /**
+     * Copy the current token into an {@link IncrementalToken}.
+     */
+    public IncrementalToken toToken() {
+        return IncrementalToken.of(kind, tokenContent(), complete);
+    }
+
+    private String substring(int from, int to) {
+        if (array != null) {
+            return new String(array, from, to - from);
+        }
+        return source.subSequence(from, to).toString();
+    }
+
+    /**
+     * Advance past the next token.
+     *
+     * @return The kind of the token, which is {@link IncrementalToken.Kind#EOF} at the end of the region
+     */
+    public IncrementalToken.Kind next() {
+        int c = charAt(position);
+        while (IncrementalTokenReader.isWhitespace(c)) {
+            c = charAt(++position);
+        }
+
+        start = position;
+        complete = true;
+        malformed = false;
+        if (c == -1) {
+            end = position;
+            return kind = IncrementalToken.Kind.EOF;
+        }
+        position++;
+
+        kind = switch (IncrementalTokenReader.classifyDispatchCharacter(c)) {
+            case TOKEN -> scanBasicToken(IncrementalToken.Kind.TOKEN);
+            case TOKEN_OR_NUMBER -> IncrementalTokenReader.isDigit(charAt(position))
+                    ? scanNumber()
+                    : scanBasicToken(IncrementalToken.Kind.TOKEN);
+            case STRING -> scanString();
+            case NUMBER -> scanNumber();
+            case CHARACTER -> scanCharacter();
+            case COMMENT -> scanComment();
+            case QUOTE -> IncrementalToken.Kind.QUOTE;
+            case UNQUOTE -> IncrementalToken.Kind.UNQUOTE;
+            case DEREF -> IncrementalToken.Kind.DEREF;
+            case META -> IncrementalToken.Kind.META;
+            case SYNTAX_QUOTE -> IncrementalToken.Kind.SYNTAX_QUOTE;
+            case OPEN -> switch (c) {
+                case '(' -> IncrementalToken.Kind.LIST_OPEN;
+                case '[' -> IncrementalToken.Kind.VECTOR_OPEN;
+                default -> IncrementalToken.Kind.MAP_OPEN;
+            };
+            case CLOSE -> switch (c) {
+                case ')' -> IncrementalToken.Kind.LIST_CLOSE;
+                case ']' -> IncrementalToken.Kind.VECTOR_CLOSE;
+                default -> IncrementalToken.Kind.MAP_CLOSE;
+            };
+            case ARG -> IncrementalToken.Kind.ARG;
+            case DISPATCH -> scanDispatch();
+            case INVALID -> IncrementalToken.Kind.UNKNOWN;
+            case EOF -> IncrementalToken.Kind.EOF;
+        };
+        end = position;
+        return kind;
+    }
+
+    /**
+     * Continue scanning a string literal that began before the current region, e.g. from a line checkpoint.
+     * The position must not be in the middle of an escape sequence.
+     *
+     * @param tokenStart the offset of the opening quote
+     * @param from       the offset to continue scanning the string body at
+     * @return {@link IncrementalToken.Kind#STRING}
+     */
+    public IncrementalToken.Kind resumeString(int tokenStart, int from) {
+        start = tokenStart;
+        position = from;
+        kind = scanString();
+        end = position;
+        return kind;
+    }
+
+    private IncrementalToken.Kind scanBasicToken(IncrementalToken.Kind tokenKind) {
+        while (!IncrementalTokenReader.isTokenTerminal(charAt(position))) {
+            position++;
+        }
+        return tokenKind;
+    }
+
+    private IncrementalToken.Kind scanCharacter() {
+        if (charAt(position) == -1) {
+            complete = false;
+            return IncrementalToken.Kind.CHARACTER;
+        }
+        position++;
+        return scanBasicToken(IncrementalToken.Kind.CHARACTER);
+    }
+
+    private IncrementalToken.Kind scanNumber() {
+        int state = NumberSyntax.next(NumberSyntax.START, charAt(start));
+        for (int c = charAt(position); !IncrementalTokenReader.isBasicTerminal(c); c = charAt(++position)) {
+            state = NumberSyntax.next(state, c);
+        }
+        return number(state);
+    }
+
+    /**
+     * A symbolic value such as {@code ##Inf}, read up to the end of a symbol as the reader reads it.
+     */
+    private IncrementalToken.Kind scanSymbolicValue() {
+        int state = NumberSyntax.next(NumberSyntax.next(NumberSyntax.START, '#'), '#');
+        for (int c = charAt(++position); !IncrementalTokenReader.isTokenTerminal(c); c = charAt(++position)) {
+            state = NumberSyntax.next(state, c);
+        }
+        return number(state);
+    }
+
+    private IncrementalToken.Kind number(int state) {
+        complete = NumberSyntax.isAccepting(state);
+        malformed = NumberSyntax.isDead(state);
+        return IncrementalToken.Kind.NUMBER;
+    }
+
+    private IncrementalToken.Kind scanString() {
+        complete = false;
+        for (int c = charAt(position); c != -1; c = charAt(position)) {
+            position++;
+            if (c == '"') {
+                complete = true;
+                break;
+            } else if (c == '\\') {
+                if (charAt(position) == -1) {
+                    break;
+                }
+                position++;
+            }
+        }
+        return IncrementalToken.Kind.STRING;
+    }
+
+    private IncrementalToken.Kind scanComment() {
+        for (int c = charAt(position); c != -1; c = charAt(position)) {
+            position++;
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+        }
+        return IncrementalToken.Kind.COMMENT;
+    }
+
+    private IncrementalToken.Kind scanDispatch() {
+        int nextChar = charAt(position);
+        if (nextChar == -1) {
+            complete = false;
+        } else if (nextChar == '#') {
+            return scanSymbolicValue();
+        } else if (nextChar != '(' && nextChar != '{' && nextChar != '"') {
+            position++;
+            // Dispatch on a supplementary character takes the whole surrogate pair
+            int low = charAt(position);
+            if (Character.isHighSurrogate((char) nextChar) && low != -1 && Character.isLowSurrogate((char) low)) {
+                position++;
+            }
+        }
+        return IncrementalToken.Kind.DISPATCH;
+    }
+}
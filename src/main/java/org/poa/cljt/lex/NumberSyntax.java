@@ -0,0 +1,254 @@
+package org.poa.cljt.lex;
+
+/**
+ * A table driven recognizer for Clojure number literals, following the patterns of {@code clojure.lang.LispReader}:
+ * <ul>
+ *     <li>integers: {@code 0}, {@code 42}, {@code -7}, octal {@code 017}, hex {@code 0xFF}, radix {@code 2r1010}, with
+ *     an optional {@code N} suffix (radix excepted, as the greedy digits take a trailing N)</li>
+ *     <li>decimals: {@code 1.5}, {@code 1.}, {@code 1e10}, {@code 1.5E-3}, with an optional {@code M} suffix</li>
+ *     <li>ratios: {@code 1/3}</li>
+ *     <li>the symbolic values {@code ##Inf}, {@code ##-Inf} and {@code ##NaN}</li>
+ * </ul>
+ * A literal with a leading zero is octal when it is an integer, so {@code 08} is malformed while {@code 08.5} is not.
+ * The radix is one or two digits between 2 and 36, and radix digits must be valid in it.
+ * <p>
+ * The state is a single int, so feeding characters allocates nothing: the low bits hold the automaton state and the
+ * high bits a register with the value of the leading digits, which becomes the radix once an {@code r} is read.
+ * Start with {@link #START} and feed each character of the literal, including its sign or leading {@code ##}, to
+ * {@link #next}. At the end the literal is valid if the state {@link #isAccepting accepts}. Otherwise it is either
+ * still a prefix of a valid literal, such as {@code 1/} or {@code 1e}, or {@link #isDead dead}, such as {@code 08}
+ * or {@code 1x}.
+ */
+public final class NumberSyntax {
+    private static final int DEAD = 0;
+    private static final int INITIAL = 1;
+    private static final int SIGN = 2;
+    private static final int ZERO = 3;
+    private static final int OCTAL = 4;
+    /**
+     * Digits after a leading zero that are not octal, only valid as the integer part of a decimal or ratio.
+     */
+    private static final int ZERO_DECIMAL = 5;
+    private static final int DECIMAL = 6;
+    private static final int HEX_START = 7;
+    private static final int HEX = 8;
+    private static final int RADIX_START = 9;
+    private static final int RADIX = 10;
+    private static final int FRACTION = 11;
+    private static final int EXPONENT_START = 12;
+    private static final int EXPONENT_SIGN = 13;
+    private static final int EXPONENT = 14;
+    private static final int RATIO_START = 15;
+    private static final int RATIO = 16;
+    private static final int INTEGER_SUFFIX = 17;
+    private static final int DECIMAL_SUFFIX = 18;
+    private static final int HASH = 19;
+    private static final int SYMBOLIC = 20;
+    private static final int SYMBOLIC_I = 21;
+    private static final int SYMBOLIC_IN = 22;
+    private static final int SYMBOLIC_INF = 23;
+    private static final int SYMBOLIC_N = 24;
+    private static final int SYMBOLIC_NA = 25;
+    private static final int SYMBOLIC_NAN = 26;
+    private static final int SYMBOLIC_MINUS = 27;
+    private static final int SYMBOLIC_MINUS_I = 28;
+    private static final int SYMBOLIC_MINUS_IN = 29;
+    private static final int SYMBOLIC_MINUS_INF = 30;
+    private static final int STATE_COUNT = 31;
+
+    private static final int OTHER = 0;
+    private static final int C_ZERO = 1;
+    private static final int C_OCTAL = 2;
+    private static final int C_DECIMAL = 3;
+    private static final int C_X = 4;
+    private static final int C_DOT = 5;
+    private static final int C_E = 6;
+    private static final int C_PLUS = 7;
+    private static final int C_MINUS = 8;
+    private static final int C_UPPER_N = 9;
+    private static final int C_M = 10;
+    private static final int C_SLASH = 11;
+    private static final int C_R = 12;
+    private static final int C_HEX = 13;
+    private static final int C_LOWER_A = 14;
+    private static final int C_LOWER_F = 15;
+    private static final int C_UPPER_I = 16;
+    private static final int C_LOWER_N = 17;
+    private static final int C_LETTER = 18;
+    private static final int C_HASH = 19;
+    private static final int CLASS_COUNT = 20;
+
+    private static final int STATE_BITS = 8;
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+    /**
+     * Any register value above the largest radix, the register stops counting there.
+     */
+    private static final int REGISTER_OVERFLOW = 100;
+
+    /**
+     * The state before the first character of a literal.
+     */
+    public static final int START = INITIAL;
+
+    private static final byte[] CLASSES = new byte[128];
+    private static final byte[] TRANSITIONS = new byte[STATE_COUNT * CLASS_COUNT];
+    private static final boolean[] ACCEPTING = new boolean[STATE_COUNT];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] = C_LETTER;
+            CLASSES[Character.toUpperCase(c)] = C_LETTER;
+        }
+        for (char c : "bcdBCDAF".toCharArray()) {
+            CLASSES[c] = C_HEX;
+        }
+        CLASSES['0'] = C_ZERO;
+        for (char c = '1'; c <= '7'; c++) {
+            CLASSES[c] = C_OCTAL;
+        }
+        CLASSES['8'] = C_DECIMAL;
+        CLASSES['9'] = C_DECIMAL;
+        CLASSES['x'] = C_X;
+        CLASSES['X'] = C_X;
+        CLASSES['.'] = C_DOT;
+        CLASSES['e'] = C_E;
+        CLASSES['E'] = C_E;
+        CLASSES['+'] = C_PLUS;
+        CLASSES['-'] = C_MINUS;
+        CLASSES['N'] = C_UPPER_N;
+        CLASSES['M'] = C_M;
+        CLASSES['/'] = C_SLASH;
+        CLASSES['r'] = C_R;
+        CLASSES['R'] = C_R;
+        CLASSES['a'] = C_LOWER_A;
+        CLASSES['f'] = C_LOWER_F;
+        CLASSES['I'] = C_UPPER_I;
+        CLASSES['n'] = C_LOWER_N;
+        CLASSES['#'] = C_HASH;
+
+        int[] digits = {C_ZERO, C_OCTAL, C_DECIMAL};
+        int[] hexDigits = {C_ZERO, C_OCTAL, C_DECIMAL, C_E, C_HEX, C_LOWER_A, C_LOWER_F};
+        int[] alphanumeric = {C_ZERO, C_OCTAL, C_DECIMAL, C_X, C_E, C_UPPER_N, C_M, C_R, C_HEX, C_LOWER_A, C_LOWER_F,
+                C_UPPER_I, C_LOWER_N, C_LETTER};
+
+        on(INITIAL, SIGN, C_PLUS, C_MINUS);
+        on(INITIAL, ZERO, C_ZERO);
+        on(INITIAL, DECIMAL, C_OCTAL, C_DECIMAL);
+        on(INITIAL, HASH, C_HASH);
+        on(SIGN, ZERO, C_ZERO);
+        on(SIGN, DECIMAL, C_OCTAL, C_DECIMAL);
+
+        on(ZERO, OCTAL, C_ZERO, C_OCTAL);
+        on(ZERO, ZERO_DECIMAL, C_DECIMAL);
+        on(ZERO, HEX_START, C_X);
+        on(OCTAL, OCTAL, C_ZERO, C_OCTAL);
+        on(OCTAL, ZERO_DECIMAL, C_DECIMAL);
+        on(ZERO_DECIMAL, ZERO_DECIMAL, digits);
+        on(DECIMAL, DECIMAL, digits);
+        on(DECIMAL, RADIX_START, C_R);
+        for (int state : new int[]{ZERO, OCTAL, DECIMAL}) {
+            on(state, INTEGER_SUFFIX, C_UPPER_N);
+        }
+        for (int state : new int[]{ZERO, OCTAL, ZERO_DECIMAL, DECIMAL}) {
+            on(state, FRACTION, C_DOT);
+            on(state, EXPONENT_START, C_E);
+            on(state, DECIMAL_SUFFIX, C_M);
+            on(state, RATIO_START, C_SLASH);
+        }
+
+        on(HEX_START, HEX, hexDigits);
+        on(HEX, HEX, hexDigits);
+        on(HEX, INTEGER_SUFFIX, C_UPPER_N);
+        on(RADIX_START, RADIX, alphanumeric);
+        on(RADIX, RADIX, alphanumeric);
+
+        on(FRACTION, FRACTION, digits);
+        on(FRACTION, EXPONENT_START, C_E);
+        on(FRACTION, DECIMAL_SUFFIX, C_M);
+        on(EXPONENT_START, EXPONENT_SIGN, C_PLUS, C_MINUS);
+        on(EXPONENT_START, EXPONENT, digits);
+        on(EXPONENT_SIGN, EXPONENT, digits);
+        on(EXPONENT, EXPONENT, digits);
+        on(EXPONENT, DECIMAL_SUFFIX, C_M);
+        on(RATIO_START, RATIO, digits);
+        on(RATIO, RATIO, digits);
+
+        on(HASH, SYMBOLIC, C_HASH);
+        on(SYMBOLIC, SYMBOLIC_I, C_UPPER_I);
+        on(SYMBOLIC_I, SYMBOLIC_IN, C_LOWER_N);
+        on(SYMBOLIC_IN, SYMBOLIC_INF, C_LOWER_F);
+        on(SYMBOLIC, SYMBOLIC_N, C_UPPER_N);
+        on(SYMBOLIC_N, SYMBOLIC_NA, C_LOWER_A);
+        on(SYMBOLIC_NA, SYMBOLIC_NAN, C_UPPER_N);
+        on(SYMBOLIC, SYMBOLIC_MINUS, C_MINUS);
+        on(SYMBOLIC_MINUS, SYMBOLIC_MINUS_I, C_UPPER_I);
+        on(SYMBOLIC_MINUS_I, SYMBOLIC_MINUS_IN, C_LOWER_N);
+        on(SYMBOLIC_MINUS_IN, SYMBOLIC_MINUS_INF, C_LOWER_F);
+
+        for (int state : new int[]{ZERO, OCTAL, DECIMAL, HEX, RADIX, FRACTION, EXPONENT, RATIO, INTEGER_SUFFIX,
+                DECIMAL_SUFFIX, SYMBOLIC_INF, SYMBOLIC_NAN, SYMBOLIC_MINUS_INF}) {
+            ACCEPTING[state] = true;
+        }
+    }
+
+    private NumberSyntax() {
+    }
+
+    private static void on(int from, int to, int... classes) {
+        for (int c : classes) {
+            TRANSITIONS[from * CLASS_COUNT + c] = (byte) to;
+        }
+    }
+
+    /**
+     * @param state the state after the previous characters, or {@link #START}
+     * @param ch    the next character of the literal
+     * @return The state after {@code ch}
+     */
+    public static int next(int state, int ch) {
+        int cls = ch >= 0 && ch < CLASSES.length ? CLASSES[ch] : OTHER;
+        int to = TRANSITIONS[(state & STATE_MASK) * CLASS_COUNT + cls];
+        int register = state >>> STATE_BITS;
+        switch (to) {
+            case DECIMAL -> register = Math.min(register * 10 + ch - '0', REGISTER_OVERFLOW);
+            case RADIX_START -> {
+                if (register < Character.MIN_RADIX || register > Character.MAX_RADIX) {
+                    to = DEAD;
+                }
+            }
+            case RADIX -> {
+                if (Character.digit(ch, register) < 0) {
+                    to = DEAD;
+                }
+            }
+            default -> {
+            }
+        }
+        return to == DEAD ? DEAD : to | register << STATE_BITS;
+    }
+
+    /**
+     * @return If the characters fed so far are a valid number literal
+     */
+    public static boolean isAccepting(int state) {
+        return ACCEPTING[state & STATE_MASK];
+    }
+
+    /**
+     * @return If no further characters can make the literal valid
+     */
+    public static boolean isDead(int state) {
+        return (state & STATE_MASK) == DEAD;
+    }
+
+    /**
+     * @return If {@code text[from, to)} is a valid number literal
+     */
+    public static boolean matches(CharSequence text, int from, int to) {
+        int state = START;
+        for (int i = from; i < to && !isDead(state); i++) {
+            state = next(state, text.charAt(i));
+        }
+        return isAccepting(state);
+    }
+}
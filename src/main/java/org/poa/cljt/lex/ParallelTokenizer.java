@@ -0,0 +1,147 @@
+package org.poa.cljt.lex;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tokenizes large inputs on several cores.
+ * <p>
+ * The input is cut into chunks at likely top-level form starts, a {@code (} right after a line break, and each chunk
+ * is scanned by a fork-join task from its first character. A guessed cut can be wrong, e.g. when it falls inside a
+ * multi-line string, so the chunks are joined by scanning serially from the end of the tokens already accepted until
+ * a token starts where a token of a chunk starts. The lexer holds no state between tokens, so from that token on the
+ * chunk's tokens are exactly what a serial scan produces. A correct cut costs one token of re-scanning.
+ * <p>
+ * The result is identical to {@link IncrementalTokenScanner} over the whole input, and so to
+ * {@link IncrementalTokenReader#readToken}.
+ */
+public final class ParallelTokenizer {
+    /**
+     * Below this many characters per chunk, splitting costs more than it saves.
+     */
+    public static final int MIN_CHUNK = 64 * 1024;
+
+    private ParallelTokenizer() {
+    }
+
+    public static TokenSpans tokenize(CharSequence text) {
+        var pool = ForkJoinPool.commonPool();
+        int chunk = Math.max(MIN_CHUNK, text.length() / (pool.getParallelism() * 4 + 1));
+        return tokenize(text, pool, chunk);
+    }
+
+    /**
+     * @param chunkSize the approximate number of characters per chunk
+     */
+    public static TokenSpans tokenize(CharSequence text, ForkJoinPool pool, int chunkSize) {
+        int[] bounds = chunkBounds(text, chunkSize);
+        int count = bounds.length - 1;
+        var chunks = new TokenSpans[count];
+        pool.invoke(new ChunkTask(text, bounds, chunks, 0, count));
+        return join(text, bounds, chunks);
+    }
+
+    /**
+     * @return The chunk start offsets followed by the text length
+     */
+    static int[] chunkBounds(CharSequence text, int chunkSize) {
+        int length = text.length();
+        var bounds = new int[length / Math.max(1, chunkSize) + 2];
+        int count = 1;
+        int from = chunkSize;
+        while (from < length) {
+            int cut = nextFormStart(text, from);
+            if (cut < 0) {
+                break;
+            }
+            bounds[count++] = cut;
+            from = cut + chunkSize;
+        }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static int nextFormStart(CharSequence text, int from) {
+        for (int i = from; i + 1 < text.length(); i++) {
+            if (text.charAt(i) == '\n' && text.charAt(i + 1) == '(') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scan the tokens starting inside one chunk, continuing past its end to finish the last one.
+     */
+    static TokenSpans scanChunk(CharSequence text, int from, int to) {
+        var spans = new TokenSpans(Math.max(16, (to - from) / 4));
+        var scanner = new IncrementalTokenScanner(text);
+        scanner.seek(from);
+        while (scanner.next() != IncrementalToken.Kind.EOF && scanner.tokenStart() < to) {
+            spans.add(scanner);
+        }
+        return spans;
+    }
+
+    private static TokenSpans join(CharSequence text, int[] bounds, TokenSpans[] chunks) {
+        int total = 0;
+        for (var spans : chunks) {
+            total += spans.size();
+        }
+        var first = chunks[0];
+        var result = new TokenSpans(total);
+        result.addAll(first, 0, first.size(), 0);
+
+        var scanner = new IncrementalTokenScanner(text);
+        int chunk = 1;
+        int position = first.size() == 0 ? 0 : first.end(first.size() - 1);
+        while (chunk < chunks.length) {
+            scanner.seek(position);
+            if (scanner.next() == IncrementalToken.Kind.EOF) {
+                break;
+            }
+            int start = scanner.tokenStart();
+            while (chunk + 1 < chunks.length && bounds[chunk + 1] <= start) {
+                chunk++;
+            }
+            var spans = chunks[chunk];
+            int sync = spans.indexFrom(start);
+            if (start >= bounds[chunk] && sync < spans.size() && spans.start(sync) == start) {
+                result.addAll(spans, sync, spans.size(), 0);
+                position = spans.end(spans.size() - 1);
+                chunk++;
+            } else {
+                result.add(scanner);
+                position = scanner.tokenEnd();
+            }
+        }
+        return result;
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+        private final CharSequence text;
+        private final int[] bounds;
+        private final TokenSpans[] chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(CharSequence text, int[] bounds, TokenSpans[] chunks, int from, int to) {
+            this.text = text;
+            this.bounds = bounds;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                chunks[from] = scanChunk(text, bounds[from], bounds[to]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(text, bounds, chunks, from, mid), new ChunkTask(text, bounds, chunks, mid, to));
+        }
+    }
+}
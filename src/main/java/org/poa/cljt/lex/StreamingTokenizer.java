@@ -0,0 +1,304 @@
+package org.poa.cljt.lex;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizes UTF-8 input of any size from a channel or a (memory mapped) byte buffer in constant memory.
+ * <p>
+ * Input is decoded into a fixed size char window that an {@link IncrementalTokenScanner} runs over. A token that
+ * reaches the end of the window may continue past it, so the window is compacted to start at that token, refilled,
+ * and the token is scanned again. A token that is longer than the whole window, such as a huge string literal, is
+ * scanned on through as many refills as it takes; only its bounds are reported and its content is not kept.
+ * <p>
+ * The token stream is identical to the scanner's over the whole decoded text, with offsets counted in chars (UTF-16
+ * units) as longs. Malformed input is decoded to the replacement character. The channel is not closed.
+ */
+public class StreamingTokenizer {
+    public static final int DEFAULT_WINDOW = 64 * 1024;
+    private static final int BYTE_CHUNK = 64 * 1024;
+    /**
+     * Room for any token that does not depend on what follows it, and for a surrogate pair.
+     */
+    private static final int MIN_WINDOW = 16;
+
+    private final IncrementalTokenScanner scanner = new IncrementalTokenScanner();
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    @Nullable
+    private final ReadableByteChannel channel;
+    private final ByteBuffer bytes;
+    private boolean endOfInput;
+    private boolean exhausted;
+
+    private final char[] window;
+    private int limit;
+    private int position;
+    /**
+     * The offset of window[0] in the decoded text.
+     */
+    private long base;
+
+    private IncrementalToken.Kind kind = IncrementalToken.Kind.EOF;
+    private long start;
+    private long end;
+    private boolean complete = true;
+    private boolean inWindow = true;
+
+    public StreamingTokenizer(ReadableByteChannel channel) {
+        this(channel, DEFAULT_WINDOW);
+    }
+
+    public StreamingTokenizer(ReadableByteChannel channel, int windowSize) {
+        this.channel = channel;
+        this.bytes = ByteBuffer.allocate(BYTE_CHUNK).flip();
+        this.window = newWindow(windowSize);
+    }
+
+    /**
+     * Tokenize the remaining bytes of a buffer, e.g. a {@link java.nio.MappedByteBuffer}. The buffer's position is
+     * not changed. A single mapping is limited to 2 GiB, larger files can be read through a
+     * {@link java.nio.channels.FileChannel} instead.
+     */
+    public StreamingTokenizer(ByteBuffer buffer) {
+        this(buffer, DEFAULT_WINDOW);
+    }
+
+    public StreamingTokenizer(ByteBuffer buffer, int windowSize) {
+        this.channel = null;
+        this.bytes = buffer.duplicate();
+        this.endOfInput = true;
+        this.window = newWindow(windowSize);
+    }
+
+    private static char[] newWindow(int windowSize) {
+        if (windowSize < MIN_WINDOW) {
+            throw new IllegalArgumentException("Window must hold at least " + MIN_WINDOW + " chars: " + windowSize);
+        }
+        return new char[windowSize];
+    }
+
+    public IncrementalToken.Kind tokenKind() {
+        return kind;
+    }
+
+    public long tokenStart() {
+        return start;
+    }
+
+    public long tokenEnd() {
+        return end;
+    }
+
+    public long tokenLength() {
+        return end - start;
+    }
+
+    public boolean tokenComplete() {
+        return complete;
+    }
+
+    /**
+     * @return If the current token fit in the window, so its content is available
+     */
+    public boolean hasContent() {
+        return inWindow;
+    }
+
+    /**
+     * @return The content of the current token as in {@link IncrementalToken#content()}, or null if the token kind
+     * carries no content or the token was larger than the window
+     */
+    @Nullable
+    public String tokenContent() {
+        return inWindow ? scanner.tokenContent() : null;
+    }
+
+    public IncrementalToken toToken() {
+        return IncrementalToken.of(kind, tokenContent(), complete);
+    }
+
+    /**
+     * Advance past the next token.
+     *
+     * @return The kind of the token, which is {@link IncrementalToken.Kind#EOF} at the end of the input
+     */
+    public IncrementalToken.Kind next() throws IOException {
+        while (true) {
+            scanner.reset(window, position, limit);
+            var scanned = scanner.next();
+            if (scanned == IncrementalToken.Kind.EOF) {
+                if (exhausted) {
+                    return token(IncrementalToken.Kind.EOF);
+                }
+                // Only whitespace up to the end of the window
+                compact(limit);
+                fill();
+                continue;
+            }
+            if (scanner.tokenEnd() < limit || exhausted || isClosed(scanned)) {
+                return token(scanned);
+            }
+            if (scanner.tokenStart() > 0) {
+                compact(scanner.tokenStart());
+                fill();
+                continue;
+            }
+            return oversized(scanned);
+        }
+    }
+
+    /**
+     * @return If the current token, ending at the window end, was ended by its own last character and does not
+     * depend on what follows
+     */
+    private boolean isClosed(IncrementalToken.Kind scanned) {
+        return switch (scanned) {
+            case STRING -> scanner.tokenComplete();
+            case COMMENT -> window[scanner.tokenEnd() - 1] == '\n' || window[scanner.tokenEnd() - 1] == '\r';
+            default -> false;
+        };
+    }
+
+    private IncrementalToken.Kind token(IncrementalToken.Kind scanned) {
+        kind = scanned;
+        start = base + scanner.tokenStart();
+        end = base + scanner.tokenEnd();
+        complete = scanner.tokenComplete();
+        inWindow = true;
+        position = scanner.tokenEnd();
+        return kind;
+    }
+
+    /**
+     * Scan a token that fills the whole window, discarding each window once it has been scanned.
+     */
+    private IncrementalToken.Kind oversized(IncrementalToken.Kind scanned) throws IOException {
+        kind = scanned;
+        start = base;
+        complete = true;
+        inWindow = false;
+
+        // The window start is the token start, so a string body starts at 1, and other tokens have their first
+        // characters (including the one after a backslash) in the window
+        boolean escape = false;
+        if (scanned == IncrementalToken.Kind.STRING) {
+            for (int i = 1; i < limit; i++) {
+                escape = !escape && window[i] == '\\';
+            }
+        }
+        // Number literals are validated as they go, symbolic values such as ##Inf end where symbols do
+        boolean symbolic = scanned == IncrementalToken.Kind.NUMBER && window[0] == '#';
+        int number = NumberSyntax.START;
+        if (scanned == IncrementalToken.Kind.NUMBER) {
+            for (int i = 0; i < limit; i++) {
+                number = NumberSyntax.next(number, window[i]);
+            }
+        }
+
+        while (true) {
+            compact(limit);
+            fill();
+            if (limit == 0) {
+                // End of input inside the token
+                complete = switch (scanned) {
+                    case STRING -> false;
+                    case NUMBER -> NumberSyntax.isAccepting(number);
+                    default -> true;
+                };
+                break;
+            }
+            int stop = switch (scanned) {
+                case STRING -> {
+                    for (int i = 0; i < limit; i++) {
+                        if (escape) {
+                            escape = false;
+                        } else if (window[i] == '\\') {
+                            escape = true;
+                        } else if (window[i] == '"') {
+                            yield i + 1;
+                        }
+                    }
+                    yield -1;
+                }
+                case COMMENT -> {
+                    for (int i = 0; i < limit; i++) {
+                        if (window[i] == '\n' || window[i] == '\r') {
+                            yield i + 1;
+                        }
+                    }
+                    yield -1;
+                }
+                case NUMBER -> {
+                    for (int i = 0; i < limit; i++) {
+                        if (symbolic ? IncrementalTokenReader.isTokenTerminal(window[i])
+                                : IncrementalTokenReader.isBasicTerminal(window[i])) {
+                            complete = NumberSyntax.isAccepting(number);
+                            yield i;
+                        }
+                        number = NumberSyntax.next(number, window[i]);
+                    }
+                    yield -1;
+                }
+                default -> {
+                    for (int i = 0; i < limit; i++) {
+                        if (IncrementalTokenReader.isTokenTerminal(window[i])) {
+                            yield i;
+                        }
+                    }
+                    yield -1;
+                }
+            };
+            if (stop >= 0) {
+                position = stop;
+                break;
+            }
+        }
+        end = base + position;
+        return kind;
+    }
+
+    /**
+     * Drop the window contents before {@code from}.
+     */
+    private void compact(int from) {
+        System.arraycopy(window, from, window, 0, limit - from);
+        base += from;
+        limit -= from;
+        position = Math.max(0, position - from);
+    }
+
+    /**
+     * Decode into the free part of the window until it is full or the input is exhausted.
+     */
+    private void fill() throws IOException {
+        var out = CharBuffer.wrap(window, limit, window.length - limit);
+        while (out.hasRemaining() && !exhausted) {
+            if (!endOfInput && channel != null) {
+                bytes.compact();
+                int read = channel.read(bytes);
+                bytes.flip();
+                endOfInput = read < 0;
+            }
+            var result = decoder.decode(bytes, out, endOfInput);
+            if (result.isOverflow()) {
+                break;
+            }
+            if (endOfInput) {
+                if (decoder.flush(out).isOverflow()) {
+                    break;
+                }
+                exhausted = true;
+            }
+        }
+        limit = out.position();
+    }
+}
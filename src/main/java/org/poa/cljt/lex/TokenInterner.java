@@ -0,0 +1,125 @@
+package org.poa.cljt.lex;
+
+/**
+ * A small, bounded pool of token strings, so the symbols that make up most of a buffer, such as {@code defn},
+ * {@code let} or {@code fn}, are shared instead of copied out of the text every time they are lexed.
+ * <p>
+ * Strings are looked up by a region of the text, so a hit allocates nothing. The pool is an open addressing table of
+ * fixed size that never grows: a miss whose probe sequence is full replaces the entry in its home slot, so recently
+ * seen tokens win over old ones. Tokens longer than {@link #MAX_LENGTH} are not pooled.
+ * <p>
+ * Not thread safe, each lexer keeps its own pool.
+ */
+public class TokenInterner {
+    public static final int MAX_LENGTH = 32;
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_PROBES = 4;
+
+    private final String[] strings;
+    private final int[] hashes;
+    private final int mask;
+
+    public TokenInterner() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of pooled strings, rounded up to a power of two
+     */
+    public TokenInterner(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(capacity, MAX_PROBES) - 1) << 1;
+        this.strings = new String[size];
+        this.hashes = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return A string equal to {@code text[from, to)}, shared with earlier calls for the same text when possible
+     */
+    public String intern(CharSequence text, int from, int to) {
+        if (to - from > MAX_LENGTH) {
+            return text.subSequence(from, to).toString();
+        }
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int home = spread(hash) & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (home + probe) & mask;
+            String candidate = strings[slot];
+            if (candidate == null) {
+                return store(slot, hash, text.subSequence(from, to).toString());
+            }
+            if (hashes[slot] == hash && regionEquals(candidate, text, from, to)) {
+                return candidate;
+            }
+        }
+        return store(home, hash, text.subSequence(from, to).toString());
+    }
+
+    /**
+     * @return A string equal to {@code text[from, to)}, shared with earlier calls for the same text when possible
+     */
+    public String intern(char[] text, int from, int to) {
+        if (to - from > MAX_LENGTH) {
+            return new String(text, from, to - from);
+        }
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + text[i];
+        }
+        int home = spread(hash) & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (home + probe) & mask;
+            String candidate = strings[slot];
+            if (candidate == null) {
+                return store(slot, hash, new String(text, from, to - from));
+            }
+            if (hashes[slot] == hash && regionEquals(candidate, text, from, to)) {
+                return candidate;
+            }
+        }
+        return store(home, hash, new String(text, from, to - from));
+    }
+
+    /**
+     * The hash is the same as {@link String#hashCode()}, whose low bits are poor for short strings.
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private String store(int slot, int hash, String string) {
+        strings[slot] = string;
+        hashes[slot] = hash;
+        return string;
+    }
+
+    private static boolean regionEquals(String candidate, CharSequence text, int from, int to) {
+        if (candidate.length() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (candidate.charAt(i - from) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(String candidate, char[] text, int from, int to) {
+        if (candidate.length() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (candidate.charAt(i - from) != text[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,181 @@
+package org.poa.cljt.lex;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A growable, column oriented list of token spans as produced by {@link IncrementalTokenScanner}.
+ * <p>
+ * Spans are kept in parallel primitive arrays rather than as {@link IncrementalToken} objects so that large buffers
+ * can be stored and edited without allocating per token.
+ */
+public class TokenSpans {
+    private IncrementalToken.Kind[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private boolean[] completes;
+    private int size;
+
+    public TokenSpans() {
+        this(16);
+    }
+
+    public TokenSpans(int capacity) {
+        capacity = Math.max(capacity, 1);
+        kinds = new IncrementalToken.Kind[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        completes = new boolean[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public IncrementalToken.Kind kind(int index) {
+        return kinds[index];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int end(int index) {
+        return ends[index];
+    }
+
+    public boolean complete(int index) {
+        return completes[index];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(IncrementalToken.Kind kind, int start, int end, boolean complete) {
+        ensureCapacity(size + 1);
+        kinds[size] = kind;
+        starts[size] = start;
+        ends[size] = end;
+        completes[size] = complete;
+        size++;
+    }
+
+    /**
+     * Append the current token of a scanner.
+     */
+    public void add(IncrementalTokenScanner scanner) {
+        add(scanner.tokenKind(), scanner.tokenStart(), scanner.tokenEnd(), scanner.tokenComplete());
+    }
+
+    /**
+     * Append a range of another span list, shifting its offsets.
+     */
+    public void addAll(TokenSpans other, int from, int to, int shift) {
+        int count = to - from;
+        ensureCapacity(size + count);
+        System.arraycopy(other.kinds, from, kinds, size, count);
+        System.arraycopy(other.completes, from, completes, size, count);
+        for (int i = 0; i < count; i++) {
+            starts[size + i] = other.starts[from + i] + shift;
+            ends[size + i] = other.ends[from + i] + shift;
+        }
+        size += count;
+    }
+
+    /**
+     * Replace the spans in [from, to) with all spans of {@code replacement}, moving and shifting the spans after
+     * {@code to} by {@code shift} characters.
+     */
+    void splice(int from, int to, TokenSpans replacement, int shift) {
+        int count = replacement.size;
+        int tail = size - to;
+        int newSize = from + count + tail;
+        ensureCapacity(newSize);
+
+        int tailDest = from + count;
+        if (tailDest != to) {
+            System.arraycopy(kinds, to, kinds, tailDest, tail);
+            System.arraycopy(starts, to, starts, tailDest, tail);
+            System.arraycopy(ends, to, ends, tailDest, tail);
+            System.arraycopy(completes, to, completes, tailDest, tail);
+        }
+        if (shift != 0) {
+            for (int i = tailDest; i < newSize; i++) {
+                starts[i] += shift;
+                ends[i] += shift;
+            }
+        }
+
+        System.arraycopy(replacement.kinds, 0, kinds, from, count);
+        System.arraycopy(replacement.starts, 0, starts, from, count);
+        System.arraycopy(replacement.ends, 0, ends, from, count);
+        System.arraycopy(replacement.completes, 0, completes, from, count);
+        if (newSize < size) {
+            Arrays.fill(kinds, newSize, size, null);
+        }
+        size = newSize;
+    }
+
+    /**
+     * Find the first span that starts at or after the given offset.
+     *
+     * @return The index of the span, or {@link #size()} if every span starts before the offset
+     */
+    public int indexFrom(int offset) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Find the first span that ends after the given offset.
+     *
+     * @return The index of the span, or {@link #size()} if every span ends at or before the offset
+     */
+    public int indexAfter(int offset) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] <= offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Build the content of a span in the same form as {@link IncrementalToken#content()}.
+     */
+    @Nullable
+    public String content(int index, CharSequence text) {
+        return IncrementalTokenScanner.contentOf(kinds[index], text, starts[index], ends[index]);
+    }
+
+    public IncrementalToken toToken(int index, CharSequence text) {
+        return IncrementalToken.of(kinds[index], content(index, text), completes[index]);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= kinds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, kinds.length + (kinds.length >> 1));
+        kinds = Arrays.copyOf(kinds, newCapacity);
+        starts = Arrays.copyOf(starts, newCapacity);
+        ends = Arrays.copyOf(ends, newCapacity);
+        completes = Arrays.copyOf(completes, newCapacity);
+    }
+}
@@ -0,0 +1,101 @@
+package org.poa.cljt.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+
+/**
+ * Latency of each {@link Stage} of handling a key press, kept in {@link LatencyHistogram}s and emitted as
+ * {@link StageEvent}s for Flight Recorder.
+ * <p>
+ * Timing is off unless the {@code cljt.metrics} system property is set or {@link #setEnabled} turns it on, e.g. with
+ * {@code :stats on} at the REPL. While it is off, {@link #start()} is a read of a volatile field and
+ * {@link #record} returns at once, so instrumented code pays next to nothing. While it is on, events are committed
+ * whenever a recording has {@code org.poa.cljt.Stage} enabled.
+ * <pre>{@code
+ * long start = Metrics.start();
+ * try {
+ *     ...
+ * } finally {
+ *     Metrics.record(Stage.PARSE, start, line.length());
+ * }
+ * }</pre>
+ */
+public final class Metrics {
+    private static final long DISABLED = Long.MIN_VALUE;
+
+    private static volatile boolean enabled = Boolean.getBoolean("cljt.metrics");
+    private static final EnumMap<Stage, LatencyHistogram> HISTOGRAMS = new EnumMap<>(Stage.class);
+
+    static {
+        for (var stage : Stage.values()) {
+            HISTOGRAMS.put(stage, new LatencyHistogram());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * @return The start time to pass to {@link #record}
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : DISABLED;
+    }
+
+    /**
+     * @param start what {@link #start()} returned before the stage began
+     * @param length the length of the input the stage worked on
+     */
+    public static void record(Stage stage, long start, int length) {
+        if (start == DISABLED) {
+            return;
+        }
+        long latency = System.nanoTime() - start;
+        HISTOGRAMS.get(stage).record(latency);
+        var event = new StageEvent();
+        if (event.shouldCommit()) {
+            event.stage = stage.label();
+            event.length = length;
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    public static LatencyHistogram histogram(Stage stage) {
+        return HISTOGRAMS.get(stage);
+    }
+
+    public static void reset() {
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * @return A table of the count, p50, p99 and maximum latency of every stage, in milliseconds
+     */
+    public static String report() {
+        var report = new StringBuilder(String.format(Locale.ROOT, "%-10s %8s %9s %9s %9s%n",
+                "stage", "count", "p50 ms", "p99 ms", "max ms"));
+        for (var stage : Stage.values()) {
+            var histogram = HISTOGRAMS.get(stage);
+            report.append(String.format(Locale.ROOT, "%-10s %8d %9.3f %9.3f %9.3f%n", stage.label(),
+                    histogram.count(), millis(histogram.percentile(50)), millis(histogram.percentile(99)),
+                    millis(histogram.max())));
+        }
+        if (!enabled) {
+            report.append("Timing is off, turn it on with :stats on").append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
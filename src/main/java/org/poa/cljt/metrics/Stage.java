@@ -0,0 +1,31 @@
+package org.poa.cljt.metrics;
+
+/**
+ * The work done between a key press and the redraw, timed by {@link Metrics}.
+ */
+public enum Stage {
+    /**
+     * Re-lexing the edited lines, in {@link org.poa.cljt.lex.IncrementalLexer#update}.
+     */
+    LEX("lex"),
+    PARSE("parse"),
+    COMPLETE("complete"),
+    /**
+     * A highlighter pass, including the lexing it does.
+     */
+    HIGHLIGHT("highlight"),
+    /**
+     * Finding the call at the cursor and describing its var, in {@link org.poa.cljt.Eldoc}.
+     */
+    ELDOC("eldoc");
+
+    private final String label;
+
+    Stage(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,31 @@
+package org.poa.cljt.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One timed {@link Stage}, for Flight Recorder. The latency is measured by {@link Metrics} rather than by the
+ * event's own duration, which would need the event allocated before the work starts.
+ */
+@Name("org.poa.cljt.Stage")
+@Label("Input Stage")
+@Category({"cljt", "Input"})
+@Description("Lexing, parsing, completion or highlighting for one key press")
+@StackTrace(false)
+final class StageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Input Length")
+    @Description("Length of the buffer the stage worked on")
+    int length;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
@@ -0,0 +1,16 @@
+package org.poa.cljt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BlinkMatchingParenTest {
+
+    @Test
+    void findsPartnerAcrossEdits() {
+        var blink = new BlinkMatchingParen(null);
+        Assertions.assertEquals(0, blink.matchingOffset("(str \")\" \\))", 11));
+        Assertions.assertEquals(5, blink.matchingOffset("(str [1 2]", 9));
+        Assertions.assertEquals(0, blink.matchingOffset("(str [1 2])", 10));
+        Assertions.assertEquals(-1, blink.matchingOffset("(str ; )\n", 7));
+    }
+}
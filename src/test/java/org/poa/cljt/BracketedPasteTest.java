@@ -0,0 +1,52 @@
+package org.poa.cljt;
+
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.impl.LineReaderImpl;
+import org.jline.terminal.Size;
+import org.jline.terminal.impl.ExternalTerminal;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+class BracketedPasteTest {
+
+    private static LineReader reader(String input) throws IOException {
+        var terminal = new ExternalTerminal("test", "xterm-256color",
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream(),
+                StandardCharsets.UTF_8);
+        terminal.setSize(new Size(80, 24));
+        var reader = LineReaderBuilder.builder()
+                .terminal(terminal)
+                .parser(new CljParser())
+                .highlighter(new CljHighlighter())
+                .build();
+        BracketedPaste.install(reader);
+        return reader;
+    }
+
+    private static String paste(String payload) {
+        return LineReaderImpl.BRACKETED_PASTE_BEGIN + payload + LineReaderImpl.BRACKETED_PASTE_END;
+    }
+
+    @Test
+    void acceptsCompleteFormsEndingInALineBreak() throws IOException {
+        var sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("(defn f").append(i).append(" [x]\r  (str x \")\"))\r");
+        }
+        var pasted = sb.toString();
+        var line = reader(paste(pasted)).readLine("user=> ");
+        Assertions.assertEquals(pasted.replace('\r', '\n').stripTrailing(), line);
+    }
+
+    @Test
+    void leavesIncompleteFormsToBeFinished() throws IOException {
+        Assertions.assertEquals("(defn f [x]\n  x)", reader(paste("(defn f [x]\r") + "  x)\r").readLine("user=> "));
+        Assertions.assertEquals("(inc 1) (dec 2)", reader(paste("(inc 1)") + " (dec 2)\r").readLine("user=> "));
+    }
+}
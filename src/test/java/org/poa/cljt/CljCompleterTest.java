@@ -0,0 +1,58 @@
+package org.poa.cljt;
+
+import clojure.lang.Keyword;
+import clojure.lang.Namespace;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import org.jline.reader.Candidate;
+import org.jline.reader.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.poa.cljt.complete.SymbolIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class CljCompleterTest {
+
+    private static List<String> complete(CljCompleter completer, String line) {
+        var parsed = new CljParser().parse(line, line.length(), Parser.ParseContext.COMPLETE);
+        var out = new ArrayList<Candidate>();
+        completer.complete(null, parsed, out);
+        return out.stream().map(Candidate::value).toList();
+    }
+
+    @Test
+    void completesEachContextFromItsSource() {
+        RT.init();
+        var ns = Namespace.findOrCreate(Symbol.intern("org.poa.cljt.completer-test"));
+        ns.addAlias(Symbol.intern("cs"), Namespace.find(Symbol.intern("clojure.core")));
+        ns.importClass(java.util.UUID.class);
+        Keyword.intern("org.poa.cljt.completer-test", "zz-local");
+        var completer = new CljCompleter(new SymbolIndex(), () -> ns);
+
+        Assertions.assertTrue(complete(completer, "(cs/map").contains("cs/mapv"));
+        Assertions.assertTrue(complete(completer, "(c").contains("cs/"));
+        Assertions.assertTrue(complete(completer, "(le").contains("let*"));
+        Assertions.assertTrue(complete(completer, "(UUID/rand").contains("UUID/randomUUID"));
+        Assertions.assertTrue(complete(completer, "(.getLeastSig").contains(".getLeastSignificantBits"));
+        Assertions.assertTrue(complete(completer, "(require '[clojure.co").contains("clojure.core"));
+        Assertions.assertEquals(List.of("::zz-local"), complete(completer, "::zz"));
+        Assertions.assertTrue(complete(completer, ":org.poa.cljt.completer-test/zz")
+                .contains(":org.poa.cljt.completer-test/zz-local"));
+        Assertions.assertEquals(List.of(), complete(completer, "(str \"ma"));
+
+        Namespace.remove(ns.getName());
+    }
+
+    @Test
+    void completesBeforeTheRuntimeHasANamespace() {
+        RT.init();
+        var completer = new CljCompleter(new SymbolIndex(), () -> null);
+
+        Assertions.assertEquals(List.of(), complete(completer, "(.getLeastSig"));
+        Assertions.assertEquals(List.of(), complete(completer, "(UUID/rand"));
+        Assertions.assertEquals(List.of(), complete(completer, "::zz"));
+        Assertions.assertTrue(complete(completer, "(clojure.core/mapv").contains("clojure.core/mapv"));
+    }
+}
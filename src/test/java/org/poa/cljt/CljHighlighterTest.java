@@ -0,0 +1,68 @@
+package org.poa.cljt;
+
+import org.jline.utils.AttributedStyle;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class CljHighlighterTest {
+
+    private static final String[] FRAGMENTS = {"(", ")", "\"", "\n", " ", "; c\n", ":k", "nil", "12", "#{", "'", "08"};
+
+    @Test
+    void stylesTokensByKind() {
+        var highlighter = new CljHighlighter();
+        var line = "(str :k \"s\" 12) ; c";
+        var result = highlighter.highlight(null, line);
+
+        Assertions.assertEquals(line, result.toString());
+        Assertions.assertEquals(AttributedStyle.DEFAULT.foreground(AttributedStyle.GREEN),
+                result.styleAt(line.indexOf('"')));
+        Assertions.assertEquals(AttributedStyle.DEFAULT.foreground(AttributedStyle.BLUE), result.styleAt(5));
+        Assertions.assertEquals(AttributedStyle.DEFAULT, result.styleAt(1));
+        Assertions.assertSame(result, highlighter.highlight(null, line));
+    }
+
+    @Test
+    void marksInvalidNumbers() {
+        var highlighter = new CljHighlighter();
+        var error = AttributedStyle.DEFAULT.foreground(AttributedStyle.RED);
+        Assertions.assertNotEquals(error, highlighter.highlight(null, "(+ 1/").styleAt(3));
+        var result = highlighter.highlight(null, "(+ 1/ 08 08.5 ##Inf)");
+        Assertions.assertEquals(error, result.styleAt(3));
+        Assertions.assertEquals(error, result.styleAt(6));
+        Assertions.assertNotEquals(error, result.styleAt(9));
+        Assertions.assertNotEquals(error, result.styleAt(14));
+    }
+
+    @Test
+    void colorsBracketsByDepth() {
+        var highlighter = new CljHighlighter();
+        var result = highlighter.highlight(null, "(a [b] \"(\")]");
+        Assertions.assertEquals(result.styleAt(0), result.styleAt(10));
+        Assertions.assertEquals(result.styleAt(3), result.styleAt(5));
+        Assertions.assertNotEquals(result.styleAt(0), result.styleAt(3));
+        Assertions.assertEquals(AttributedStyle.DEFAULT.foreground(AttributedStyle.RED), result.styleAt(11));
+
+        // Closing the vector early recolors the brackets before the edit
+        var edited = highlighter.highlight(null, "(a [b] \"(\")]]");
+        Assertions.assertEquals(new CljHighlighter().highlight(null, "(a [b] \"(\")]]"), edited);
+    }
+
+    @Test
+    void incrementalRedrawsMatchFreshHighlighting() {
+        var random = new Random(3);
+        var highlighter = new CljHighlighter();
+        var sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            int offset = random.nextInt(sb.length() + 1);
+            int removed = random.nextInt(4) == 0 ? random.nextInt(Math.min(4, sb.length() - offset) + 1) : 0;
+            sb.replace(offset, offset + removed, FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+
+            var buffer = sb.toString();
+            Assertions.assertEquals(new CljHighlighter().highlight(null, buffer), highlighter.highlight(null, buffer),
+                    buffer);
+        }
+    }
+}
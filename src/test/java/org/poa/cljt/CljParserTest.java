@@ -0,0 +1,57 @@
+package org.poa.cljt;
+
+import org.jline.reader.EOFError;
+import org.jline.reader.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class CljParserTest {
+
+    @Test
+    void acceptsCompleteForms() {
+        var parser = new CljParser();
+        for (var input : List.of("", "(+ 1 2)", "[1 {:a \"b\"}] ; done", "\\(", "#\"a(b\"", "'sym")) {
+            Assertions.assertDoesNotThrow(() -> parser.parse(input, input.length(), Parser.ParseContext.ACCEPT_LINE), input);
+        }
+    }
+
+    @Test
+    void incompleteFormsRequestMoreInput() {
+        var parser = new CljParser();
+        for (var input : List.of("(defn f [x]", "(str \"abc", "'", "(a #_", "[1 2 (3)")) {
+            Assertions.assertThrows(EOFError.class,
+                    () -> parser.parse(input, input.length(), Parser.ParseContext.ACCEPT_LINE), input);
+        }
+
+        var error = Assertions.assertThrows(EOFError.class,
+                () -> parser.parse("{:a [1", 6, Parser.ParseContext.ACCEPT_LINE));
+        Assertions.assertEquals("]", error.getMissing());
+        Assertions.assertEquals(2, error.getOpenBrackets());
+    }
+
+    @Test
+    void completionNeverThrows() {
+        var parser = new CljParser();
+        Assertions.assertDoesNotThrow(() -> parser.parse("(str \"abc", 9, Parser.ParseContext.COMPLETE));
+    }
+
+    @Test
+    void findsWordAtCursor() {
+        var parser = new CljParser();
+        var line = parser.parse("(map-v m)", 6, Parser.ParseContext.COMPLETE);
+        Assertions.assertEquals("map-v", line.word());
+        Assertions.assertEquals(5, line.wordCursor());
+        Assertions.assertEquals(List.of("(", "map-v", "m", ")"), line.words());
+
+        line = parser.parse("(map-v )", 7, Parser.ParseContext.COMPLETE);
+        Assertions.assertEquals("", line.word());
+        Assertions.assertEquals(2, line.wordIndex());
+        Assertions.assertEquals(List.of("(", "map-v", "", ")"), line.words());
+
+        line = parser.parse("(", 1, Parser.ParseContext.COMPLETE);
+        Assertions.assertEquals("", line.word());
+        Assertions.assertEquals(1, line.wordIndex());
+    }
+}
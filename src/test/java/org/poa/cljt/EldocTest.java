@@ -0,0 +1,55 @@
+package org.poa.cljt;
+
+import clojure.lang.Namespace;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import org.jline.reader.LineReader;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.poa.cljt.complete.ArglistCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+class EldocTest {
+
+    @Test
+    void findsTheOperatorOfTheEnclosingCall() {
+        var eldoc = new Eldoc(null, () -> null, new ArglistCache(ArglistCache.DEFAULT_CAPACITY));
+        Assertions.assertEquals("map", eldoc.operator("(map inc ", 9));
+        Assertions.assertEquals("inc", eldoc.operator("(map (inc ", 10));
+        Assertions.assertEquals("map", eldoc.operator("(map (inc 1) ", 13));
+        Assertions.assertEquals("let", eldoc.operator("(let [x ", 8));
+        Assertions.assertEquals("str", eldoc.operator("(str \")\" ", 9));
+        Assertions.assertEquals("fn", eldoc.operator("(map #(fn [] ) ", 13));
+        Assertions.assertNull(eldoc.operator("((comp f g) ", 12));
+        Assertions.assertNull(eldoc.operator("(map inc) ", 10));
+        Assertions.assertNull(eldoc.operator("[1 2 ", 5));
+        Assertions.assertEquals("map", eldoc.operator("(map inc ", 2));
+    }
+
+    @Test
+    void installsEnabledWidgets() throws IOException {
+        var terminal = new DumbTerminal(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream());
+        var reader = LineReaderBuilder.builder().terminal(terminal).build();
+        var widgets = Eldoc.install(reader, () -> null);
+        Assertions.assertTrue(widgets.isEnabled());
+        Assertions.assertEquals("_tailtip-self-insert", reader.getWidgets().get(LineReader.SELF_INSERT).toString());
+    }
+
+    @Test
+    void describesTheVarAndKeepsTheDescription() {
+        RT.init();
+        var core = Namespace.find(Symbol.intern("clojure.core"));
+        var eldoc = new Eldoc(null, () -> core, new ArglistCache(ArglistCache.DEFAULT_CAPACITY));
+        var desc = eldoc.describe("(reduce + ", 10);
+        var signature = desc.getMainDesc().getFirst().toString();
+        Assertions.assertTrue(signature.startsWith("clojure.core/reduce [f coll]"), signature);
+        Assertions.assertTrue(desc.getMainDesc().size() > 1);
+        Assertions.assertSame(desc, eldoc.describe("(reduce + 0 ", 12));
+        Assertions.assertNull(eldoc.describe("(no-such-fn ", 12));
+    }
+}
@@ -0,0 +1,122 @@
+package org.poa.cljt;
+
+import org.jline.reader.LineReaderBuilder;
+import org.jline.terminal.impl.DumbTerminal;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+@Timeout(60)
+class EvaluatorTest {
+
+    private final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+
+    private String printed() {
+        synchronized (printed) {
+            return printed.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private OutputBuffer outputBuffer(int capacity) throws IOException {
+        var terminal = new DumbTerminal(new ByteArrayInputStream(new byte[0]), printed);
+        var reader = LineReaderBuilder.builder().terminal(terminal).build();
+        return new OutputBuffer(reader, capacity, Duration.ofMillis(5));
+    }
+
+    @Test
+    void evaluatesLinesInOrderWithTheirBindings() throws IOException {
+        try (var runtime = ClojureRuntime.start(); var out = outputBuffer(OutputBuffer.DEFAULT_CAPACITY);
+             var evaluator = new Evaluator(out, Duration.ofSeconds(30), runtime.runtime())) {
+            evaluator.submit("(ns evaluator-test) (println \"side\" \"effect\") (+ 1 2)");
+            var first = evaluator.submit("(str *ns* \"/\" *1)");
+            Assertions.assertEquals("evaluator-test/3", first.join());
+            Assertions.assertEquals("evaluator-test", evaluator.namespace().getName().getName());
+
+            var failed = evaluator.submit("(/ 1 0)");
+            Assertions.assertThrows(CompletionException.class, failed::join);
+            Assertions.assertEquals("java.lang.ArithmeticException", evaluator.submit("(.getName (class *e))").join());
+            Assertions.assertTrue(printed().contains("side effect\n"), printed());
+            Assertions.assertTrue(printed().contains("ArithmeticException: Divide by zero"), printed());
+        }
+    }
+
+    @Test
+    void streamsChattyOutputThroughABoundedBuffer() throws IOException {
+        try (var runtime = ClojureRuntime.start(); var out = outputBuffer(256);
+             var evaluator = new Evaluator(out, Duration.ofSeconds(30), runtime.runtime())) {
+            evaluator.submit("(dotimes [i 2000] (println \"line\" i)) (print \"no newline\")").join();
+            var text = printed();
+            Assertions.assertTrue(text.contains("line 0\nline 1\n"), text);
+            Assertions.assertTrue(text.contains("line 1998\nline 1999\n"), text);
+            Assertions.assertTrue(text.indexOf("line 1999") < text.indexOf("no newline"), text);
+        }
+    }
+
+    @Test
+    void printsLinesLongerThanTheBuffer() throws IOException {
+        try (var runtime = ClojureRuntime.start(); var out = outputBuffer(256);
+             var evaluator = new Evaluator(out, Duration.ofSeconds(30), runtime.runtime())) {
+            evaluator.submit("(print (apply str (repeat 5000 \"x\"))) (print \"end\")").join();
+            out.drain();
+            // Split into lines wherever the buffer had to print a partial one
+            var text = printed().replace("\n", "");
+            Assertions.assertTrue(text.contains("x".repeat(5000)), () -> text.length() + " characters printed");
+            Assertions.assertTrue(text.indexOf("x".repeat(5000)) < text.indexOf("end"));
+        }
+    }
+
+    @Test
+    void timesOutEvaluationsBlockedOnOutput() throws IOException {
+        var terminal = new DumbTerminal(new ByteArrayInputStream(new byte[0]), printed);
+        var reader = LineReaderBuilder.builder().terminal(terminal).build();
+        // A flush interval long enough that the writer is still waiting for room when the evaluation times out
+        try (var runtime = ClojureRuntime.start(); var out = new OutputBuffer(reader, 256, Duration.ofSeconds(30));
+             var evaluator = new Evaluator(out, Duration.ofMillis(300), runtime.runtime())) {
+            var printing = evaluator.submit("(prn (range 20000))");
+            Assertions.assertThrows(CompletionException.class, printing::join);
+            Assertions.assertTrue(printed().contains("timed out"), printed());
+            Assertions.assertEquals(3L, evaluator.submit("(+ 1 2)").join());
+        }
+    }
+
+    @Test
+    void timesOutEvaluationsThatWaitForever() throws IOException {
+        try (var runtime = ClojureRuntime.start(); var out = outputBuffer(OutputBuffer.DEFAULT_CAPACITY);
+             var evaluator = new Evaluator(out, Duration.ofMillis(300), runtime.runtime())) {
+            evaluator.submit("(def before-timeout 1)").join();
+            var sleeping = evaluator.submit("(Thread/sleep 60000)");
+            Assertions.assertThrows(CompletionException.class, sleeping::join);
+            Assertions.assertTrue(printed().contains("timed out"), printed());
+            Assertions.assertEquals(2L, evaluator.submit("(inc before-timeout)").join());
+        }
+    }
+
+    @Test
+    void abandonsEvaluationsThatIgnoreInterrupts() throws IOException {
+        try (var runtime = ClojureRuntime.start(); var out = outputBuffer(OutputBuffer.DEFAULT_CAPACITY);
+             var evaluator = new Evaluator(out, Duration.ofSeconds(30), runtime.runtime())) {
+            evaluator.submit("(ns abandoned-test)").join();
+            // Spins without looking at the interrupt, but ends on its own so the test does not leave it running
+            var spinning = evaluator.submit("(println \"spinning\")"
+                    + " (let [end (+ (System/currentTimeMillis) 3000)]"
+                    + "   (loop [] (when (< (System/currentTimeMillis) end) (recur))))");
+            var queued = evaluator.submit("(def never-evaluated 1)");
+            while (!printed().contains("spinning")) {
+                Thread.onSpinWait();
+            }
+            Assertions.assertTrue(evaluator.interrupt());
+            Assertions.assertThrows(CancellationException.class, queued::join);
+            Assertions.assertThrows(CancellationException.class, spinning::join);
+            // A new worker carries on in the session's namespace
+            Assertions.assertEquals("abandoned-test", evaluator.submit("(str *ns*)").join());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.poa.cljt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+class ReplServerTest {
+    private static final int IDLE_SESSIONS = 64;
+
+    /**
+     * Type a line into a session and read its output until {@code expected} shows up.
+     */
+    private static String evalUntil(SocketChannel channel, String line, String expected) throws IOException {
+        channel.write(StandardCharsets.UTF_8.encode(line + "\r"));
+        var out = new StringBuilder();
+        var buffer = ByteBuffer.allocate(4096);
+        while (!out.toString().contains(expected)) {
+            buffer.clear();
+            if (channel.read(buffer) < 0) {
+                Assertions.fail("Session closed, got " + out);
+            }
+            buffer.flip();
+            out.append(StandardCharsets.UTF_8.decode(buffer));
+        }
+        return out.toString();
+    }
+
+    private static void servesConcurrentSessions(SocketAddress address) throws IOException {
+        try (var runtime = ClojureRuntime.start(); var server = ReplServer.open(address, runtime).start()) {
+            var family = address instanceof UnixDomainSocketAddress ? StandardProtocolFamily.UNIX
+                    : StandardProtocolFamily.INET;
+            try (var first = SocketChannel.open(family); var second = SocketChannel.open(family)) {
+                first.connect(server.localAddress());
+                second.connect(server.localAddress());
+
+                evalUntil(first, "(ns repl-server-test) (str \"sess\" \"ion-1\")", "\"session-1\"");
+                evalUntil(second, "(def x 41) (str \"sess\" \"ion-2\")", "\"session-2\"");
+                // Each session keeps its own *ns* and *1
+                evalUntil(first, "(str *ns* \"/\" *1)", "\"repl-server-test/session-1\"");
+                evalUntil(second, "(str *ns* \"/\" (inc x))", "\"user/42\"");
+                Assertions.assertEquals(2, server.sessionCount());
+            }
+        }
+    }
+
+    /**
+     * @return The number of platform threads that virtual threads are currently scheduled on
+     */
+    private static long carrierThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getClass().getName().equals("jdk.internal.misc.CarrierThread"))
+                .count();
+    }
+
+    @Test
+    @Timeout(60)
+    void servesSessionsOverTcp() throws IOException {
+        servesConcurrentSessions(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @Test
+    @Timeout(60)
+    void servesSessionsOverUnixSocket(@TempDir Path dir) throws IOException {
+        var path = dir.resolve("cljt.sock");
+        servesConcurrentSessions(UnixDomainSocketAddress.of(path));
+        Assertions.assertFalse(path.toFile().exists());
+    }
+
+    @Test
+    @Timeout(120)
+    void idleSessionsDoNotHoldCarrierThreads() throws IOException {
+        var address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (var runtime = ClojureRuntime.start(); var server = ReplServer.open(address, runtime).start()) {
+            var sessions = new ArrayList<SocketChannel>();
+            try {
+                for (int i = 0; i < IDLE_SESSIONS; i++) {
+                    var channel = SocketChannel.open(server.localAddress());
+                    sessions.add(channel);
+                    evalUntil(channel, "(str \"idle-\" " + i + ")", "\"idle-" + i + "\"");
+                }
+                // Every session is now waiting for input at its prompt
+                Assertions.assertEquals(IDLE_SESSIONS, server.sessionCount());
+                long carriers = carrierThreads();
+                Assertions.assertTrue(carriers < IDLE_SESSIONS / 2, carriers + " carrier threads");
+                evalUntil(sessions.getFirst(), "(str \"still\" \"-there\")", "\"still-there\"");
+            } finally {
+                for (var channel : sessions) {
+                    channel.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.poa.cljt.complete;
+
+import clojure.lang.Namespace;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import clojure.lang.Var;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class ArglistCacheTest {
+
+    private static void eval(String code) {
+        var eval = RT.var("clojure.core", "eval");
+        var readString = RT.var("clojure.core", "read-string");
+        var ns = Namespace.find(Symbol.intern("org.poa.cljt.arglist-test"));
+        Var.pushThreadBindings(RT.mapUniqueKeys(RT.CURRENT_NS, ns));
+        try {
+            eval.invoke(readString.invoke(code));
+        } finally {
+            Var.popThreadBindings();
+        }
+    }
+
+    @Test
+    void resolvesOnceUntilTheVarIsRedefined() {
+        RT.init();
+        var ns = Namespace.findOrCreate(Symbol.intern("org.poa.cljt.arglist-test"));
+        try {
+            eval("(clojure.core/refer-clojure)");
+            eval("(require '[clojure.string :as s])");
+            eval("(defn f \"Adds.\n  Twice.\" [x y] (+ x y))");
+            var cache = new ArglistCache(ArglistCache.DEFAULT_CAPACITY);
+
+            var doc = cache.lookup(ns, "f");
+            Assertions.assertEquals(new ArglistCache.Doc("org.poa.cljt.arglist-test/f", List.of("[x y]"),
+                    "Adds.\n  Twice."), doc);
+            Assertions.assertSame(doc, cache.lookup(ns, "f"));
+            Assertions.assertEquals(1, cache.misses());
+
+            eval("(defn f [x] x)");
+            Assertions.assertEquals(List.of("[x]"), cache.lookup(ns, "f").arglists());
+            Assertions.assertEquals(2, cache.misses());
+
+            Assertions.assertEquals("clojure.core/map", cache.lookup(ns, "map").name());
+            Assertions.assertEquals("clojure.string/join", cache.lookup(ns, "s/join").name());
+            Assertions.assertNull(cache.lookup(ns, "undefined-yet"));
+            Assertions.assertNull(cache.lookup(ns, "undefined-yet"));
+            Assertions.assertNull(cache.lookup(ns, "no.such.ns/f"));
+            Assertions.assertEquals(6, cache.misses());
+
+            // Interning a new var changes the namespace's mappings
+            eval("(defn undefined-yet [a] a)");
+            Assertions.assertEquals(List.of("[a]"), cache.lookup(ns, "undefined-yet").arglists());
+        } finally {
+            Namespace.remove(ns.getName());
+        }
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsed() {
+        RT.init();
+        var ns = Namespace.find(Symbol.intern("clojure.core"));
+        var cache = new ArglistCache(2);
+        cache.lookup(ns, "map");
+        cache.lookup(ns, "filter");
+        cache.lookup(ns, "map");
+        cache.lookup(ns, "reduce");
+        Assertions.assertEquals(2, cache.size());
+        int misses = cache.misses();
+        cache.lookup(ns, "map");
+        Assertions.assertEquals(misses, cache.misses());
+        cache.lookup(ns, "filter");
+        Assertions.assertEquals(misses + 1, cache.misses());
+    }
+}
@@ -0,0 +1,47 @@
+package org.poa.cljt.complete;
+
+import org.jline.reader.Candidate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class AsyncCompleterTest {
+
+    @Test
+    void returnsAllCandidatesOfAFastDelegate() {
+        try (var completer = new AsyncCompleter((reader, line, out) -> out.add(new Candidate("fast")),
+                Duration.ofSeconds(5))) {
+            var out = new ArrayList<Candidate>();
+            completer.complete(null, null, out);
+            Assertions.assertEquals(1, out.size());
+        }
+    }
+
+    @Test
+    void returnsPartialResultsAndInterruptsWhenOverBudget() throws InterruptedException {
+        var interrupted = new CountDownLatch(1);
+        try (var completer = new AsyncCompleter((reader, line, out) -> {
+            out.add(new Candidate("first"));
+            try {
+                Thread.sleep(10_000);
+                out.add(new Candidate("never"));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }, Duration.ofMillis(50))) {
+            var out = new ArrayList<Candidate>();
+            long start = System.nanoTime();
+            completer.complete(null, null, out);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assertions.assertTrue(elapsed < 5_000, "took " + elapsed + "ms");
+            Assertions.assertEquals(1, out.size());
+            Assertions.assertEquals("first", out.getFirst().value());
+            Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
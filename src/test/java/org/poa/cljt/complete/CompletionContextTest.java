@@ -0,0 +1,54 @@
+package org.poa.cljt.complete;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CompletionContextTest {
+
+    private static CompletionContext classify(String line) {
+        return CompletionContext.classify(line, line.length());
+    }
+
+    @Test
+    void classifiesByTokensBeforeTheCursor() {
+        Assertions.assertEquals(CompletionContext.Kind.FUNCTION, classify("(ma").kind());
+        Assertions.assertEquals(CompletionContext.Kind.FUNCTION, classify("(let [x 1] (").kind());
+        Assertions.assertEquals(CompletionContext.Kind.SYMBOL, classify("(map inc").kind());
+        Assertions.assertEquals(CompletionContext.Kind.SYMBOL, classify("[ma").kind());
+        Assertions.assertEquals(CompletionContext.Kind.KEYWORD, classify("{:fo").kind());
+        Assertions.assertEquals(CompletionContext.Kind.JAVA_METHOD, classify("(.toUpp").kind());
+        Assertions.assertEquals(CompletionContext.Kind.NONE, classify("(str \"ab").kind());
+        Assertions.assertEquals(CompletionContext.Kind.NONE, classify("(f) ; ma").kind());
+
+        var qualified = classify("(str/jo");
+        Assertions.assertEquals(CompletionContext.Kind.QUALIFIED, qualified.kind());
+        Assertions.assertEquals("str", qualified.qualifier());
+        Assertions.assertEquals("jo", qualified.prefix());
+        Assertions.assertEquals("str/jo", qualified.word());
+
+        var statics = classify("(java.util.UUID/ran");
+        Assertions.assertEquals(CompletionContext.Kind.JAVA_STATIC, statics.kind());
+        Assertions.assertEquals("java.util.UUID", statics.qualifier());
+    }
+
+    @Test
+    void namespacesInsideRequire() {
+        Assertions.assertEquals(CompletionContext.Kind.NAMESPACE, classify("(require '[clojure.st").kind());
+        Assertions.assertEquals(CompletionContext.Kind.NAMESPACE, classify("(ns a (:require clojure.s").kind());
+        Assertions.assertEquals(CompletionContext.Kind.NAMESPACE,
+                classify("(ns a (:require [clojure.set :as s] [clo").kind());
+        Assertions.assertEquals(CompletionContext.Kind.SYMBOL, classify("(ns a (:require [clojure.set :as s").kind());
+        Assertions.assertEquals(CompletionContext.Kind.SYMBOL,
+                classify("(ns a (:require [clojure.set :refer [uni").kind());
+        Assertions.assertEquals(CompletionContext.Kind.KEYWORD, classify("(ns a (:require [clojure.set :a").kind());
+    }
+
+    @Test
+    void cursorInsideLine() {
+        var line = "(str/jo \"x\")";
+        var context = CompletionContext.classify(line, 5);
+        Assertions.assertEquals(CompletionContext.Kind.QUALIFIED, context.kind());
+        Assertions.assertEquals("str/jo", context.word());
+        Assertions.assertEquals(CompletionContext.Kind.NONE, CompletionContext.classify(line, 10).kind());
+    }
+}
@@ -0,0 +1,44 @@
+package org.poa.cljt.complete;
+
+import org.jline.reader.Candidate;
+import org.jline.reader.Completer;
+import org.jline.reader.Parser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.poa.cljt.CljParser;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+class DeferredCompleterTest {
+
+    private static List<String> complete(Completer completer, String line) {
+        var parsed = new CljParser().parse(line, line.length(), Parser.ParseContext.COMPLETE);
+        var out = new ArrayList<Candidate>();
+        completer.complete(null, parsed, out);
+        return out.stream().map(Candidate::value).toList();
+    }
+
+    @Test
+    void fallsBackUntilReady() {
+        var ready = new CompletableFuture<Completer>();
+        var completer = new DeferredCompleter(ready, new BufferWordCompleter(), Duration.ofMillis(1));
+
+        Assertions.assertFalse(completer.isReady());
+        Assertions.assertEquals(List.of("my-value"), complete(completer, "(let [my-value 1] (inc my-v"));
+
+        ready.complete((reader, line, out) -> out.add(new Candidate("indexed")));
+        Assertions.assertTrue(completer.isReady());
+        Assertions.assertEquals(List.of("indexed"), complete(completer, "(inc my-v"));
+    }
+
+    @Test
+    void keepsTheFallbackWhenLoadingFails() {
+        var completer = new DeferredCompleter(CompletableFuture.failedFuture(new IllegalStateException("no clojure")),
+                new BufferWordCompleter(), Duration.ofMillis(1));
+        Assertions.assertFalse(completer.isReady());
+        Assertions.assertEquals(List.of("alpha"), complete(completer, "alpha al"));
+    }
+}
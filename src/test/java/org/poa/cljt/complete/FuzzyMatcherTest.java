@@ -0,0 +1,38 @@
+package org.poa.cljt.complete;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FuzzyMatcherTest {
+
+    @Test
+    void matchesSubsequencesIgnoringCase() {
+        Assertions.assertNotEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.score("m-v", "map-vals"));
+        Assertions.assertNotEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.score("gSP", "getSystemProperty"));
+        Assertions.assertNotEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.score("mv", "mapv"));
+        Assertions.assertEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.score("vm", "mapv"));
+        Assertions.assertEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.score("mapvals", "map-val"));
+    }
+
+    @Test
+    void prefersSegmentMatches() {
+        Assertions.assertTrue(FuzzyMatcher.score("m-v", "map-vals") > FuzzyMatcher.score("m-v", "mem-over-v"));
+        Assertions.assertTrue(FuzzyMatcher.score("rf", "reduce-fn") > FuzzyMatcher.score("rf", "surf"));
+        Assertions.assertTrue(FuzzyMatcher.score("mv", "map-vals") > FuzzyMatcher.score("mv", "remove"));
+    }
+
+    @Test
+    void keepsTheBestK() {
+        String[] names = {"assoc", "assoc-in", "map", "map-indexed", "map-vals", "mapcat", "mapv", "merge", "remove"};
+        var matcher = new FuzzyMatcher(3);
+        int found = matcher.select("mv", names);
+        Assertions.assertEquals(3, found);
+        Assertions.assertEquals("map-vals", names[matcher.index(0)]);
+        Assertions.assertEquals("mapv", names[matcher.index(1)]);
+        for (int i = 1; i < found; i++) {
+            Assertions.assertTrue(matcher.score(i - 1) >= matcher.score(i));
+        }
+
+        Assertions.assertEquals(0, matcher.select("zzz", names));
+    }
+}
@@ -0,0 +1,54 @@
+package org.poa.cljt.complete;
+
+import clojure.lang.Namespace;
+import clojure.lang.RT;
+import clojure.lang.Symbol;
+import clojure.lang.Var;
+import org.jline.reader.Candidate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class SymbolIndexTest {
+
+    private static List<String> complete(SymbolIndex index, String prefix, String group) {
+        var out = new ArrayList<Candidate>();
+        index.complete(prefix, out);
+        return out.stream().filter(c -> group.equals(c.group())).map(Candidate::value).toList();
+    }
+
+    @Test
+    void findsPublicVarsByPrefix() {
+        RT.init();
+        var index = new SymbolIndex();
+        var out = new ArrayList<Candidate>();
+        index.complete("map", out);
+        Assertions.assertTrue(out.stream().anyMatch(c -> c.value().equals("mapv") && "clojure.core".equals(c.group())));
+        Assertions.assertTrue(out.stream().allMatch(c -> c.value().startsWith("map")));
+    }
+
+    @Test
+    void picksUpNewlyInternedVars() {
+        RT.init();
+        var ns = Namespace.findOrCreate(Symbol.intern("org.poa.cljt.symbol-index-test"));
+        var index = new SymbolIndex();
+        Assertions.assertEquals(List.of(), complete(index, "zz-", ns.getName().getName()));
+
+        Var.intern(ns, Symbol.intern("zz-first"), 1);
+        var before = index.snapshot();
+        Assertions.assertEquals(List.of("zz-first"), complete(index, "zz-", ns.getName().getName()));
+        Assertions.assertNotSame(before, index.snapshot());
+
+        var unchanged = index.snapshot();
+        index.refresh();
+        Assertions.assertSame(unchanged, index.snapshot());
+
+        Var.intern(ns, Symbol.intern("zz-second"), 2);
+        Assertions.assertEquals(List.of("zz-first", "zz-second"), complete(index, "zz-", ns.getName().getName()));
+
+        Namespace.remove(ns.getName());
+        Assertions.assertEquals(List.of(), complete(index, "zz-", ns.getName().getName()));
+    }
+}
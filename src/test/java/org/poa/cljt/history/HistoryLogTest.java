@@ -0,0 +1,95 @@
+package org.poa.cljt.history;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+class HistoryLogTest {
+
+    @Test
+    void keepsMultiLineEntriesAcrossOpens(@TempDir Path dir) throws IOException {
+        var path = dir.resolve("nested").resolve("history");
+        var time = Instant.ofEpochMilli(1_700_000_000_000L);
+        try (var log = HistoryLog.open(path)) {
+            Assertions.assertEquals(0, log.size());
+            Assertions.assertEquals(0, log.append(time, "(defn f [x]\n  (* x x))"));
+            Assertions.assertEquals(1, log.append(time.plusSeconds(1), "(f \"λ\")"));
+        }
+        try (var log = HistoryLog.open(path)) {
+            Assertions.assertEquals(2, log.size());
+            Assertions.assertEquals("(defn f [x]\n  (* x x))", log.line(0));
+            Assertions.assertEquals("(f \"λ\")", log.line(1));
+            Assertions.assertEquals(time.plusSeconds(1), log.time(1));
+        }
+    }
+
+    @Test
+    void seesEntriesAppendedThroughAnotherLog(@TempDir Path dir) throws IOException {
+        var path = dir.resolve("history");
+        try (var first = HistoryLog.open(path); var second = HistoryLog.open(path)) {
+            first.append(Instant.now(), "(inc 1)");
+            Assertions.assertEquals(1, second.size());
+            Assertions.assertEquals(1, second.append(Instant.now(), "(dec 1)"));
+            Assertions.assertEquals("(dec 1)", first.line(1));
+            first.clear();
+            Assertions.assertEquals(0, second.size());
+        }
+    }
+
+    @Test
+    void seesAClearAndAppendsThroughAnotherLog(@TempDir Path dir) throws IOException {
+        var path = dir.resolve("history");
+        try (var first = HistoryLog.open(path); var second = HistoryLog.open(path)) {
+            first.append(Instant.now(), "(inc 1)");
+            first.append(Instant.now(), "(inc 2)");
+            Assertions.assertEquals(2, first.size());
+            // Longer entries than the cleared ones, so the file does not shrink below what the first log has read
+            second.clear();
+            second.append(Instant.now(), "(str \"after the clear\")");
+            second.append(Instant.now(), "(str \"and another one\")");
+            Assertions.assertEquals(2, first.size());
+            Assertions.assertEquals("(str \"and another one\")", first.line(1));
+            Assertions.assertEquals(2, first.append(Instant.now(), "(inc 3)"));
+        }
+        try (var log = HistoryLog.open(path)) {
+            Assertions.assertEquals(3, log.size());
+            Assertions.assertEquals("(str \"after the clear\")", log.line(0));
+            Assertions.assertEquals("(inc 3)", log.line(2));
+        }
+    }
+
+    @Test
+    void ignoresATruncatedRecord(@TempDir Path dir) throws IOException {
+        var path = dir.resolve("history");
+        try (var log = HistoryLog.open(path)) {
+            log.append(Instant.now(), "(complete)");
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+            // A record header promising more text than was written
+            channel.write(ByteBuffer.allocate(HistoryLog.RECORD_HEADER_SIZE + 2).putInt(100).flip());
+        }
+        try (var log = HistoryLog.open(path)) {
+            Assertions.assertEquals(1, log.size());
+            Assertions.assertEquals("(complete)", log.line(0));
+            // The next append replaces the partial record
+            Assertions.assertEquals(1, log.append(Instant.now(), "(next)"));
+        }
+        try (var log = HistoryLog.open(path)) {
+            Assertions.assertEquals("(next)", log.line(1));
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles(@TempDir Path dir) throws IOException {
+        var path = Files.writeString(dir.resolve("history"), "1700000000000:(inc 1)\n");
+        Assertions.assertThrows(IOException.class, () -> HistoryLog.open(path));
+    }
+}
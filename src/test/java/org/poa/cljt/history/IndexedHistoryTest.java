@@ -0,0 +1,131 @@
+package org.poa.cljt.history;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+class IndexedHistoryTest {
+    private static final List<String> ENTRIES = List.of(
+            "(defn square [x]\n  (* x x))",
+            "(map square (range 10))",
+            "(println \"hello, world\")",
+            "(->> xs (filter odd?) (map inc))",
+            "(str \"hello\" \\space \"there\")",
+            "(map inc [1 2 3])",
+            "(do (def a 1) a)");
+
+    private static IndexedHistory historyOf(Path dir) throws IOException {
+        var history = IndexedHistory.open(dir.resolve("history"));
+        for (var entry : ENTRIES) {
+            history.add(Instant.now(), entry);
+        }
+        return history;
+    }
+
+    /**
+     * @return Every match of a backward search, newest first
+     */
+    private static List<Integer> searchAll(IndexedHistory history, String query, boolean prefix) {
+        var matches = new ArrayList<Integer>();
+        for (int at = history.searchBackward(query, history.size(), prefix); at >= 0;
+             at = history.searchBackward(query, at, prefix)) {
+            matches.add(at);
+        }
+        return matches;
+    }
+
+    private static List<Integer> expected(String query, boolean prefix) {
+        var matches = new ArrayList<Integer>();
+        for (int i = ENTRIES.size() - 1; i >= 0; i--) {
+            if (prefix ? ENTRIES.get(i).startsWith(query) : ENTRIES.get(i).contains(query)) {
+                matches.add(i);
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    void searchesTheSameWithAndWithoutTheIndex(@TempDir Path dir) throws IOException {
+        var queries = List.of("map", "(map", "map inc", "quare", "hello", "lo, wo", "\" \\sp", "x x))", "a", "(d",
+                "nothing", "odd?) (m");
+        var log = HistoryLog.open(dir.resolve("history"));
+        var index = new HistoryIndex(log);
+        var history = new IndexedHistory(log, index);
+        for (var entry : ENTRIES) {
+            history.add(Instant.now(), entry);
+        }
+        for (int indexed : new int[]{0, 3, ENTRIES.size()}) {
+            index.indexUpTo(indexed);
+            for (var query : queries) {
+                Assertions.assertEquals(expected(query, false), searchAll(history, query, false), query);
+                Assertions.assertEquals(expected(query, true), searchAll(history, query, true), query);
+            }
+        }
+        Assertions.assertEquals(3, history.searchForward("map", 1, false));
+        Assertions.assertEquals(5, history.searchForward("map", 3, false));
+        Assertions.assertEquals(-1, history.searchForward("map", 5, false));
+    }
+
+    @Test
+    void reindexesAfterAClearThroughAnotherHistory(@TempDir Path dir) throws IOException {
+        var history = historyOf(dir);
+        var log = HistoryLog.open(dir.resolve("history"));
+        var index = new HistoryIndex(log);
+        var indexed = new IndexedHistory(log, index);
+        index.indexUpTo(ENTRIES.size());
+        Assertions.assertEquals(expected("map", false), searchAll(indexed, "map", false));
+
+        history.purge();
+        history.add(Instant.now(), "(mapcat reverse [[1 2] [3 4]])");
+        history.add(Instant.now(), "(str \"after the clear, with a longer text\")");
+        history.add(Instant.now(), "(reduce + (map inc (range 100)))");
+        Assertions.assertEquals(List.of(2, 0), searchAll(indexed, "map", false));
+        Assertions.assertEquals(-1, indexed.searchBackward("square", indexed.size(), false));
+    }
+
+    @Test
+    void navigatesLikeJLineHistory(@TempDir Path dir) throws IOException {
+        var history = historyOf(dir);
+        history.add(Instant.now(), ENTRIES.getLast());
+        history.add(Instant.now(), "  ");
+        Assertions.assertEquals(ENTRIES.size(), history.size());
+        Assertions.assertEquals(ENTRIES.size(), history.index());
+        Assertions.assertEquals("", history.current());
+        Assertions.assertTrue(history.previous());
+        Assertions.assertEquals(ENTRIES.getLast(), history.current());
+        Assertions.assertTrue(history.moveToFirst());
+        Assertions.assertFalse(history.previous());
+        Assertions.assertEquals(ENTRIES.getFirst(), history.current());
+
+        var lines = new ArrayList<String>();
+        history.iterator(ENTRIES.size() - 2).forEachRemaining(entry -> lines.add(entry.line()));
+        Assertions.assertEquals(ENTRIES.subList(ENTRIES.size() - 2, ENTRIES.size()), lines);
+
+        // Sessions share the entries, but not the cursor
+        var session = history.newSession();
+        session.add(Instant.now(), "(+ 1 2)");
+        Assertions.assertEquals("(+ 1 2)", history.get(ENTRIES.size()));
+        Assertions.assertEquals(0, history.index());
+    }
+
+    @Test
+    void exportsAndImportsJLineHistoryFiles(@TempDir Path dir) throws IOException {
+        var history = historyOf(dir);
+        var file = dir.resolve("jline_history");
+        history.write(file, false);
+        Assertions.assertEquals(ENTRIES.size(), Files.readAllLines(file).size());
+
+        var imported = IndexedHistory.open(dir.resolve("imported"));
+        imported.read(file, false);
+        var lines = new ArrayList<String>();
+        imported.forEach(entry -> lines.add(entry.line()));
+        Assertions.assertEquals(ENTRIES, lines);
+    }
+}
@@ -0,0 +1,64 @@
+package org.poa.cljt.lex;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class BracketIndexTest {
+
+    private static final String[] FRAGMENTS = {
+            "(", ")", "[", "]", "{", "}", "\"", "\n", " ", "; c\n", "#{", "x", "\\(", "(f x)", "\n(defn g [])"
+    };
+
+    private static void assertSameAsRebuilt(BracketIndex index, IncrementalLexer lexer) {
+        var expected = BracketIndex.of(lexer);
+        var text = lexer.text().toString();
+        Assertions.assertEquals(expected.size(), index.size(), text);
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.offset(i), index.offset(i), text);
+            Assertions.assertEquals(expected.isOpen(i), index.isOpen(i), text);
+            Assertions.assertEquals(expected.depth(i), index.depth(i), text + " @" + i);
+            Assertions.assertEquals(expected.partner(i), index.partner(i), text + " @" + i);
+        }
+    }
+
+    @Test
+    void updatesMatchRebuiltIndex() {
+        var random = new Random(5);
+        var lexer = new IncrementalLexer();
+        var index = BracketIndex.of(lexer);
+        var sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            int offset = random.nextInt(sb.length() + 1);
+            int removed = random.nextInt(4) == 0 ? random.nextInt(Math.min(6, sb.length() - offset) + 1) : 0;
+            String insert = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+            sb.replace(offset, offset + removed, insert);
+
+            lexer.edit(sb.toString(), offset, removed, insert.length());
+            index.update(lexer);
+            assertSameAsRebuilt(index, lexer);
+            Assertions.assertTrue(index.changedFrom() <= offset);
+        }
+    }
+
+    @Test
+    void matchesSkipStringsAndComments() {
+        var lexer = new IncrementalLexer("(a \"(\" [b] ; )\n \\) c)");
+        var index = BracketIndex.of(lexer);
+        Assertions.assertEquals(4, index.size());
+        Assertions.assertEquals(lexer.text().length() - 1, index.matchingOffset(0));
+        Assertions.assertEquals(9, index.matchingOffset(7));
+        Assertions.assertEquals(1, index.depth(1));
+        Assertions.assertTrue(index.isMatched(0));
+        Assertions.assertEquals(-1, index.matchingOffset(4));
+    }
+
+    @Test
+    void mismatchedAndUnmatchedBrackets() {
+        var index = BracketIndex.of(new IncrementalLexer(") (a]"));
+        Assertions.assertEquals(-1, index.partner(0));
+        Assertions.assertEquals(2, index.partner(1));
+        Assertions.assertFalse(index.isMatched(1));
+    }
+}
@@ -0,0 +1,113 @@
+package org.poa.cljt.lex;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+class FormTreeTest {
+
+    private static final String[] FRAGMENTS = {
+            "(", ")", "[", "]", "{", "}", "\"", "\n", " ", "; c\n", "#{", "x", "foo", "\\(", "12"
+    };
+
+    private static int delta(IncrementalToken.Kind kind) {
+        return switch (kind) {
+            case LIST_OPEN, VECTOR_OPEN, MAP_OPEN -> 1;
+            case LIST_CLOSE, VECTOR_CLOSE, MAP_CLOSE -> -1;
+            default -> 0;
+        };
+    }
+
+    private static int[] bruteForceMatches(TokenSpans tokens) {
+        int[] matches = new int[tokens.size()];
+        Arrays.fill(matches, -1);
+        var stack = new ArrayDeque<Integer>();
+        for (int i = 0; i < tokens.size(); i++) {
+            int d = delta(tokens.kind(i));
+            if (d > 0) {
+                stack.push(i);
+            } else if (d < 0 && !stack.isEmpty()) {
+                int open = stack.pop();
+                matches[open] = i;
+                matches[i] = open;
+            }
+        }
+        return matches;
+    }
+
+    private static int bruteForceEnclosing(TokenSpans tokens, int offset) {
+        var stack = new ArrayDeque<Integer>();
+        for (int i = 0; i < tokens.size() && tokens.start(i) < offset; i++) {
+            int d = delta(tokens.kind(i));
+            if (d > 0) {
+                stack.push(i);
+            } else if (d < 0 && !stack.isEmpty()) {
+                stack.pop();
+            }
+        }
+        return stack.isEmpty() ? -1 : stack.peek();
+    }
+
+    private static void assertMatchesTokens(FormTree tree, TokenSpans tokens, CharSequence text, Random random) {
+        Assertions.assertEquals(tokens.size(), tree.size(), text.toString());
+        int depth = 0;
+        int minDepth = 0;
+        boolean complete = true;
+        int[] matches = bruteForceMatches(tokens);
+        for (int i = 0; i < tokens.size(); i++) {
+            Assertions.assertEquals(tokens.kind(i), tree.kind(i));
+            Assertions.assertEquals(tokens.start(i), tree.tokenStart(i), text.toString());
+            Assertions.assertEquals(tokens.end(i), tree.tokenEnd(i), text.toString());
+            Assertions.assertEquals(depth, tree.depthBefore(i));
+            depth += delta(tokens.kind(i));
+            minDepth = Math.min(minDepth, depth);
+            complete &= tokens.complete(i);
+
+            // Brute force matching ignores unmatched closers, which the tree never pairs either
+            Assertions.assertEquals(matches[i], tree.matching(i), text + " @" + i);
+        }
+        Assertions.assertEquals(depth == 0 && minDepth == 0, tree.isBalanced(), text.toString());
+        Assertions.assertEquals(depth == 0 && minDepth == 0 && complete, tree.isComplete(), text.toString());
+
+        for (int i = 0; i < 5; i++) {
+            int offset = random.nextInt(text.length() + 1);
+            Assertions.assertEquals(bruteForceEnclosing(tokens, offset), tree.enclosingOpen(offset), text + " @" + offset);
+        }
+    }
+
+    @Test
+    void editsMatchRebuiltTree() {
+        var random = new Random(7);
+        var lexer = new IncrementalLexer();
+        var tree = FormTree.of(lexer);
+        var sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            int offset = random.nextInt(sb.length() + 1);
+            int removed = random.nextInt(5) == 0 ? random.nextInt(Math.min(6, sb.length() - offset) + 1) : 0;
+            String insert = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+            sb.replace(offset, offset + removed, insert);
+
+            lexer.edit(sb.toString(), offset, removed, insert.length());
+            tree = tree.withEdit(lexer);
+            assertMatchesTokens(tree, lexer.tokens(), sb, random);
+        }
+    }
+
+    @Test
+    void previousVersionsAreUnchanged() {
+        var lexer = new IncrementalLexer("(a [b] c)");
+        var before = FormTree.of(lexer);
+        lexer.edit("(a [b c)", 5, 1, 0);
+        var after = before.withEdit(lexer);
+
+        Assertions.assertTrue(before.isComplete());
+        Assertions.assertEquals(6, before.matching(0));
+        Assertions.assertFalse(after.isComplete());
+        Assertions.assertEquals(1, after.unclosed());
+        Assertions.assertEquals(-1, after.matching(0));
+        Assertions.assertEquals(5, after.matching(2));
+    }
+}
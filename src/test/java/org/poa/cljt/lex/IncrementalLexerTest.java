@@ -0,0 +1,93 @@
+package org.poa.cljt.lex;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class IncrementalLexerTest {
+
+    private static final String[] FRAGMENTS = {
+            "(", ")", "[", "]", "{", "}", "\"", "\\", "\n", " ", ";", "#", "#{", "'", "@", "~@",
+            "defn", "x", "+1", "-", "12", "\\newline", "\"str\"", "; note\n", ",", "%"
+    };
+
+    private static void assertSameAsFullLex(IncrementalLexer lexer) {
+        var expected = new IncrementalLexer(lexer.text());
+        var text = lexer.text();
+        Assertions.assertEquals(expected.tokens().size(), lexer.tokens().size(), text.toString());
+        for (int i = 0; i < expected.tokens().size(); i++) {
+            Assertions.assertEquals(expected.tokens().toToken(i, text), lexer.tokens().toToken(i, text), text.toString());
+            Assertions.assertEquals(expected.tokens().start(i), lexer.tokens().start(i), text.toString());
+            Assertions.assertEquals(expected.tokens().end(i), lexer.tokens().end(i), text.toString());
+        }
+        Assertions.assertEquals(expected.lineCount(), lexer.lineCount(), text.toString());
+        for (int i = 0; i < expected.lineCount(); i++) {
+            Assertions.assertEquals(expected.lineStart(i), lexer.lineStart(i), text.toString());
+            Assertions.assertEquals(expected.lineToken(i), lexer.lineToken(i), text.toString());
+            Assertions.assertEquals(expected.lineState(i), lexer.lineState(i), text.toString());
+        }
+    }
+
+    @Test
+    void randomEditsMatchFullLex() {
+        var random = new Random(42);
+        var lexer = new IncrementalLexer();
+        var sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            int offset = random.nextInt(sb.length() + 1);
+            int removed = random.nextInt(4) == 0 ? random.nextInt(Math.min(8, sb.length() - offset) + 1) : 0;
+            String insert = removed > 0 && random.nextBoolean() ? "" : FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+
+            sb.replace(offset, offset + removed, insert);
+            lexer.edit(sb.toString(), offset, removed, insert.length());
+            assertSameAsFullLex(lexer);
+        }
+    }
+
+    @Test
+    void randomUpdatesMatchFullLex() {
+        var random = new Random(11);
+        var lexer = new IncrementalLexer();
+        var sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            int offset = random.nextInt(sb.length() + 1);
+            int removed = random.nextInt(4) == 0 ? random.nextInt(Math.min(8, sb.length() - offset) + 1) : 0;
+            sb.replace(offset, offset + removed, FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+
+            Assertions.assertTrue(lexer.update(sb.toString()) || lexer.text().toString().contentEquals(sb));
+            assertSameAsFullLex(lexer);
+        }
+        Assertions.assertFalse(lexer.update(sb.toString()));
+    }
+
+    @Test
+    void multiLineStringCheckpoints() {
+        var lexer = new IncrementalLexer("(def s \"one\ntwo\nthree\")\n(f)");
+        Assertions.assertEquals(IncrementalLexer.LineState.DEFAULT, lexer.lineState(0));
+        Assertions.assertEquals(IncrementalLexer.LineState.STRING, lexer.lineState(1));
+        Assertions.assertEquals(IncrementalLexer.LineState.STRING, lexer.lineState(2));
+        Assertions.assertEquals(IncrementalLexer.LineState.DEFAULT, lexer.lineState(3));
+
+        var text = "(def s \"one\ntwo\nthr\"ee\")\n(f)";
+        lexer.edit(text, 19, 0, 1);
+        assertSameAsFullLex(lexer);
+        // The inserted quote closes the first string early and the old closing quote now opens a new one
+        Assertions.assertEquals(IncrementalLexer.LineState.STRING, lexer.lineState(3));
+    }
+
+    @Test
+    void editCostIsLocal() {
+        var sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("(defn f").append(i).append(" [x] (inc x)) ; line ").append(i).append('\n');
+        }
+        var lexer = new IncrementalLexer(sb.toString());
+        int offset = sb.indexOf("(inc x)", sb.length() / 2);
+        sb.insert(offset + 1, "d");
+        lexer.edit(sb.toString(), offset + 1, 0, 1);
+
+        assertSameAsFullLex(lexer);
+        Assertions.assertTrue(lexer.lastRelexedTokens() < 20, "relexed " + lexer.lastRelexedTokens());
+    }
+}
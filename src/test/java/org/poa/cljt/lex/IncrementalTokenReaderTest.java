@@ -145,4 +145,22 @@ class IncrementalTokenReaderTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void charClassTableMatchesCharacterPredicates() {
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+            boolean whitespace = ch == ',' || Character.isWhitespace(ch);
+            boolean macro = !Character.isDigit(ch) && "\";'@^`~()[]{}\\%#".indexOf(ch) >= 0;
+            boolean terminatingMacro = macro && ch != '#' && ch != '\'' && ch != '%';
+            Assertions.assertEquals(whitespace, IncrementalTokenReader.isWhitespace(ch), "char " + ch);
+            Assertions.assertEquals(Character.isDigit(ch), IncrementalTokenReader.isDigit(ch), "char " + ch);
+            Assertions.assertEquals(macro, IncrementalTokenReader.isMacroChar(ch), "char " + ch);
+            Assertions.assertEquals(terminatingMacro, IncrementalTokenReader.isTerminatingMacroChar(ch), "char " + ch);
+            Assertions.assertEquals(whitespace || macro, IncrementalTokenReader.isBasicTerminal(ch), "char " + ch);
+            Assertions.assertEquals(whitespace || terminatingMacro, IncrementalTokenReader.isTokenTerminal(ch),
+                    "char " + ch);
+        }
+        Assertions.assertTrue(IncrementalTokenReader.isBasicTerminal(-1));
+        Assertions.assertTrue(IncrementalTokenReader.isTokenTerminal(-1));
+        Assertions.assertFalse(IncrementalTokenReader.isWhitespace(-1));
+    }
+}
@@ -0,0 +1,138 @@
+package org.poa.cljt.lex;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+class IncrementalTokenScannerTest {
+
+    private static final List<String> INPUTS = List.of(
+            """
+                    (this "is" a \\return test 1234 +1234 -1234 + - asdf #{} {} [] asdf^asdf 'asdf `asdf ~asdf ~@asdf) ; test
+                    "this is""",
+            "",
+            "   ,,  ",
+            "(defn f [x] #(inc %) #_ignored #\"re\" \"esc\\\"aped\" \\a)",
+            "\"trailing escape \\",
+            "; comment only",
+            "(a #",
+            "+ -a +1 -",
+            "(str \\( \\) \\space \\\\)",
+            "(a \\",
+            "(def \uD83D\uDE00 \"\uD83C\uDF89 party\") #\uD83D\uDE00 #\uD83D \\\uD83D\uDE00 caf\u00E9\u2028x",
+            "#\uD83D",
+            "[1 -2 +3N 08 08.5 0x1F 2r1010 37r1 1/2 1/ 1e 1.5e-3M ##Inf ##-Inf ##NaN ##Foo ## 1x]"
+    );
+
+    record Span(IncrementalToken token, long advance) {
+    }
+
+    private static List<Span> readAll(String input) throws IOException {
+        var rdr = new PushbackReader(new StringReader(input));
+        var reader = new IncrementalTokenReader();
+        var out = new ArrayList<Span>();
+        IncrementalToken token;
+        while ((token = reader.readToken(rdr)).kind() != IncrementalToken.Kind.EOF) {
+            out.add(new Span(token, reader.getAdvance()));
+        }
+        return out;
+    }
+
+    private static List<Span> scanAll(IncrementalTokenScanner scanner) {
+        var out = new ArrayList<Span>();
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            out.add(new Span(scanner.toToken(), scanner.tokenEnd()));
+        }
+        return out;
+    }
+
+    @Test
+    void matchesReaderOverCharSequence() throws IOException {
+        for (var input : INPUTS) {
+            Assertions.assertEquals(readAll(input), scanAll(new IncrementalTokenScanner(input)), input);
+        }
+    }
+
+    @Test
+    void matchesReaderOverCharArray() throws IOException {
+        for (var input : INPUTS) {
+            Assertions.assertEquals(readAll(input), scanAll(new IncrementalTokenScanner(input.toCharArray())), input);
+        }
+    }
+
+    @Test
+    void reportsOffsetsWithoutContent() {
+        var scanner = new IncrementalTokenScanner("  (foo \"ba");
+        Assertions.assertEquals(IncrementalToken.Kind.LIST_OPEN, scanner.next());
+        Assertions.assertEquals(2, scanner.tokenStart());
+        Assertions.assertEquals(3, scanner.tokenEnd());
+        Assertions.assertNull(scanner.tokenContent());
+
+        Assertions.assertEquals(IncrementalToken.Kind.TOKEN, scanner.next());
+        Assertions.assertEquals(3, scanner.tokenStart());
+        Assertions.assertEquals(6, scanner.tokenEnd());
+
+        Assertions.assertEquals(IncrementalToken.Kind.STRING, scanner.next());
+        Assertions.assertEquals(7, scanner.tokenStart());
+        Assertions.assertEquals(10, scanner.tokenEnd());
+        Assertions.assertFalse(scanner.tokenComplete());
+
+        Assertions.assertEquals(IncrementalToken.Kind.EOF, scanner.next());
+        Assertions.assertEquals(10, scanner.tokenStart());
+    }
+
+    @Test
+    void characterAndRegexLiterals() {
+        var scanner = new IncrementalTokenScanner("\\( #\"a(b\" \\");
+        Assertions.assertEquals(IncrementalToken.Kind.CHARACTER, scanner.next());
+        Assertions.assertEquals("\\(", scanner.tokenContent());
+
+        Assertions.assertEquals(IncrementalToken.Kind.DISPATCH, scanner.next());
+        Assertions.assertEquals("\"", scanner.tokenContent());
+        Assertions.assertEquals(IncrementalToken.Kind.STRING, scanner.next());
+        Assertions.assertEquals("\"a(b\"", scanner.tokenContent());
+        Assertions.assertTrue(scanner.tokenComplete());
+
+        Assertions.assertEquals(IncrementalToken.Kind.CHARACTER, scanner.next());
+        Assertions.assertFalse(scanner.tokenComplete());
+        Assertions.assertEquals(IncrementalToken.Kind.EOF, scanner.next());
+    }
+
+    @Test
+    void supplementaryCharacters() throws IOException {
+        var emoji = "\uD83D\uDE00";
+        var scanner = new IncrementalTokenScanner("#" + emoji + " :" + emoji + "/x #_ #(");
+        Assertions.assertEquals(IncrementalToken.Kind.DISPATCH, scanner.next());
+        Assertions.assertEquals(3, scanner.tokenEnd());
+        Assertions.assertEquals(emoji, scanner.tokenContent());
+        Assertions.assertEquals(IncrementalToken.Kind.TOKEN, scanner.next());
+        Assertions.assertEquals(":" + emoji + "/x", scanner.tokenContent());
+
+        // ASCII dispatch content is shared rather than allocated per token
+        Assertions.assertEquals(IncrementalToken.Kind.DISPATCH, scanner.next());
+        Assertions.assertSame("_", scanner.tokenContent());
+        Assertions.assertEquals(IncrementalToken.Kind.DISPATCH, scanner.next());
+        Assertions.assertSame("(", scanner.tokenContent());
+
+        var rdr = new PushbackReader(new StringReader("#_ #" + emoji));
+        var reader = new IncrementalTokenReader();
+        Assertions.assertSame("_", reader.readToken(rdr).content());
+        Assertions.assertEquals(emoji, reader.readToken(rdr).content());
+        Assertions.assertEquals(IncrementalToken.Kind.EOF, reader.readToken(rdr).kind());
+    }
+
+    @Test
+    void scansSubRegion() {
+        var input = "(a b c)";
+        var scanner = new IncrementalTokenScanner();
+        scanner.reset(input, 3, 5);
+        Assertions.assertEquals(IncrementalToken.Kind.TOKEN, scanner.next());
+        Assertions.assertEquals("b", scanner.tokenContent());
+        Assertions.assertEquals(IncrementalToken.Kind.EOF, scanner.next());
+    }
+}
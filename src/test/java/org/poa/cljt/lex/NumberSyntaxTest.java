@@ -0,0 +1,63 @@
+package org.poa.cljt.lex;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class NumberSyntaxTest {
+
+    private static int feed(String literal) {
+        int state = NumberSyntax.START;
+        for (int i = 0; i < literal.length(); i++) {
+            state = NumberSyntax.next(state, literal.charAt(i));
+        }
+        return state;
+    }
+
+    @Test
+    void acceptsClojureLiterals() {
+        for (var literal : List.of("0", "42", "-7", "+1", "42N", "017", "00", "0x1F", "-0XffN", "2r1010", "36rZz",
+                "-16rFF", "1.5", "1.", "08.5", "1e10", "1.5E-3", "1e+2M", "2M", "08M", "1/3", "-01/3", "##Inf",
+                "##-Inf", "##NaN")) {
+            Assertions.assertTrue(NumberSyntax.isAccepting(feed(literal)), literal);
+            Assertions.assertTrue(NumberSyntax.matches(" " + literal, 1, literal.length() + 1), literal);
+        }
+    }
+
+    @Test
+    void separatesIncompleteFromMalformed() {
+        for (var literal : List.of("-", "0x", "2r", "1/", "1e", "1e-", "08", "0128", "##", "##-In", "#")) {
+            int state = feed(literal);
+            Assertions.assertFalse(NumberSyntax.isAccepting(state), literal);
+            Assertions.assertFalse(NumberSyntax.isDead(state), literal);
+        }
+        for (var literal : List.of("08N", "1x", "0r1", "1r0", "37r1", "100r1", "2r12", "16rFFN", "1.5N", "1/2N",
+                "0x1M", "1..", "##Foo", "##Infinity", "1_000")) {
+            Assertions.assertTrue(NumberSyntax.isDead(feed(literal)), literal);
+        }
+    }
+
+    @Test
+    void scannerReportsNumberValidity() {
+        var scanner = new IncrementalTokenScanner("1/2 08N 1/ ##Inf ##Nope");
+        Assertions.assertEquals(IncrementalToken.Kind.NUMBER, scanner.next());
+        Assertions.assertTrue(scanner.tokenComplete());
+
+        Assertions.assertEquals(IncrementalToken.Kind.NUMBER, scanner.next());
+        Assertions.assertFalse(scanner.tokenComplete());
+        Assertions.assertTrue(scanner.tokenMalformed());
+
+        Assertions.assertEquals(IncrementalToken.Kind.NUMBER, scanner.next());
+        Assertions.assertFalse(scanner.tokenComplete());
+        Assertions.assertFalse(scanner.tokenMalformed());
+
+        Assertions.assertEquals(IncrementalToken.Kind.NUMBER, scanner.next());
+        Assertions.assertEquals("##Inf", scanner.tokenContent());
+        Assertions.assertTrue(scanner.tokenComplete());
+
+        Assertions.assertEquals(IncrementalToken.Kind.NUMBER, scanner.next());
+        Assertions.assertTrue(scanner.tokenMalformed());
+        Assertions.assertEquals(IncrementalToken.Kind.EOF, scanner.next());
+    }
+}
@@ -0,0 +1,55 @@
+package org.poa.cljt.lex;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class ParallelTokenizerTest {
+
+    private static final String[] FRAGMENTS = {
+            "\n(defn f [x] (inc x))", "\n(", ")", "\"", "\n", " ", "; c", "\\", "#", "x", "\"\n(str)\"", "\n\n"
+    };
+
+    private static void assertSameAsSerial(String text, TokenSpans actual) {
+        var scanner = new IncrementalTokenScanner(text);
+        int i = 0;
+        while (scanner.next() != IncrementalToken.Kind.EOF) {
+            Assertions.assertTrue(i < actual.size(), text);
+            Assertions.assertEquals(scanner.tokenKind(), actual.kind(i), text);
+            Assertions.assertEquals(scanner.tokenStart(), actual.start(i), text);
+            Assertions.assertEquals(scanner.tokenEnd(), actual.end(i), text);
+            Assertions.assertEquals(scanner.tokenComplete(), actual.complete(i), text);
+            i++;
+        }
+        Assertions.assertEquals(i, actual.size(), text);
+    }
+
+    @Test
+    void matchesSerialScanWhateverTheCuts() {
+        var random = new Random(17);
+        var pool = new ForkJoinPool(4);
+        try {
+            for (int n = 0; n < 300; n++) {
+                var sb = new StringBuilder();
+                int length = random.nextInt(600);
+                while (sb.length() < length) {
+                    sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                }
+                var text = sb.toString();
+                assertSameAsSerial(text, ParallelTokenizer.tokenize(text, pool, 1 + random.nextInt(40)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void cutsInsideStringsAreRepaired() {
+        var text = "(def s \"\n(not a form)\n(nor this)\")\n(f)\n(g \"\n(h\")";
+        var bounds = ParallelTokenizer.chunkBounds(text, 1);
+        Assertions.assertTrue(bounds.length > 4);
+        assertSameAsSerial(text, ParallelTokenizer.tokenize(text, ForkJoinPool.commonPool(), 1));
+    }
+}
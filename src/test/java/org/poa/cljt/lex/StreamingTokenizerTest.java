@@ -0,0 +1,75 @@
+package org.poa.cljt.lex;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+class StreamingTokenizerTest {
+
+    private static final String[] FRAGMENTS = {
+            "(", ")", "[", "]", "{", "}", "\"", "\\", "\n", " ", ";", "#", "#{", "'", "@", "~@", "λ", "😀",
+            "defn", "x", "+1", "-", "12", "08", "1/", "e", "N", "##", "##Inf", "\\newline", "\"str\"", "; note\n", ",", "%", "\\\\\"", "\"a\\\"b\""
+    };
+
+    private static String randomText(Random random, int length) {
+        var sb = new StringBuilder();
+        while (sb.length() < length) {
+            if (random.nextInt(40) == 0) {
+                // A run longer than the window
+                var fragment = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+                sb.append(fragment.repeat(20 + random.nextInt(40)));
+            } else {
+                sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameAsScanner(String text, StreamingTokenizer tokenizer) throws IOException {
+        var scanner = new IncrementalTokenScanner(text);
+        IncrementalToken.Kind kind;
+        do {
+            kind = scanner.next();
+            Assertions.assertEquals(kind, tokenizer.next(), text);
+            Assertions.assertEquals(scanner.tokenStart(), tokenizer.tokenStart(), text);
+            Assertions.assertEquals(scanner.tokenEnd(), tokenizer.tokenEnd(), text);
+            Assertions.assertEquals(scanner.tokenComplete(), tokenizer.tokenComplete(), text);
+            if (tokenizer.hasContent()) {
+                Assertions.assertEquals(scanner.tokenContent(), tokenizer.tokenContent(), text);
+            }
+        } while (kind != IncrementalToken.Kind.EOF);
+    }
+
+    @Test
+    void matchesScannerAcrossWindows() throws IOException {
+        var random = new Random(13);
+        for (int i = 0; i < 300; i++) {
+            var text = randomText(random, 50 + random.nextInt(400));
+            var utf8 = text.getBytes(StandardCharsets.UTF_8);
+            int window = 16 + random.nextInt(48);
+            assertSameAsScanner(text, new StreamingTokenizer(ByteBuffer.wrap(utf8), window));
+            assertSameAsScanner(text,
+                    new StreamingTokenizer(Channels.newChannel(new ByteArrayInputStream(utf8)), window));
+        }
+    }
+
+    @Test
+    void stringsLongerThanTheWindow() throws IOException {
+        var body = "ab\\\"c".repeat(10_000);
+        var text = "(def s \"" + body + "\") (f)";
+        var tokenizer = new StreamingTokenizer(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), 64);
+        assertSameAsScanner(text, tokenizer);
+
+        var open = new StreamingTokenizer(ByteBuffer.wrap(("\"" + body).getBytes(StandardCharsets.UTF_8)), 64);
+        Assertions.assertEquals(IncrementalToken.Kind.STRING, open.next());
+        Assertions.assertFalse(open.tokenComplete());
+        Assertions.assertFalse(open.hasContent());
+        Assertions.assertEquals(body.length() + 1, open.tokenEnd());
+    }
+}
@@ -0,0 +1,49 @@
+package org.poa.cljt.lex;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TokenInternerTest {
+
+    @Test
+    void sharesEqualRegions() {
+        var interner = new TokenInterner();
+        var text = "(defn f [x] (defn g))";
+        var first = interner.intern(text, 1, 5);
+        Assertions.assertEquals("defn", first);
+        Assertions.assertSame(first, interner.intern(text, 13, 17));
+        Assertions.assertSame(first, interner.intern(text.toCharArray(), 13, 17));
+        Assertions.assertEquals("f", interner.intern(text, 6, 7));
+    }
+
+    @Test
+    void staysBounded() {
+        var interner = new TokenInterner(4);
+        for (int i = 0; i < 1000; i++) {
+            var symbol = "sym" + i;
+            Assertions.assertEquals(symbol, interner.intern(symbol, 0, symbol.length()));
+        }
+        var recent = interner.intern("sym999", 0, 6);
+        Assertions.assertSame(recent, interner.intern("(sym999)", 1, 7));
+
+        var longSymbol = "(" + "x".repeat(TokenInterner.MAX_LENGTH + 1) + ")";
+        int end = longSymbol.length() - 1;
+        Assertions.assertNotSame(interner.intern(longSymbol, 1, end), interner.intern(longSymbol, 1, end));
+    }
+
+    @Test
+    void sharesContentFreeTokens() {
+        var scanner = new IncrementalTokenScanner("(let [x 1] (let))");
+        scanner.next();
+        var open = scanner.toToken();
+        Assertions.assertSame(IncrementalToken.of(IncrementalToken.Kind.LIST_OPEN), open);
+        scanner.next();
+        var let = scanner.tokenContent();
+        for (int i = 0; i < 5; i++) {
+            scanner.next();
+        }
+        Assertions.assertSame(open, scanner.toToken());
+        scanner.next();
+        Assertions.assertSame(let, scanner.tokenContent());
+    }
+}
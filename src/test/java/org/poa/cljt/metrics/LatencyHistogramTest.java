@@ -0,0 +1,61 @@
+package org.poa.cljt.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueInOrder() {
+        long previous = -1;
+        for (int bucket = 0; bucket < 300; bucket++) {
+            long upper = LatencyHistogram.upperBound(bucket);
+            Assertions.assertTrue(upper > previous);
+            Assertions.assertEquals(bucket, LatencyHistogram.bucket(previous + 1));
+            Assertions.assertEquals(bucket, LatencyHistogram.bucket(upper));
+            previous = upper;
+        }
+        Assertions.assertEquals(LatencyHistogram.bucket(Long.MAX_VALUE),
+                LatencyHistogram.bucket(LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE))));
+    }
+
+    @Test
+    void percentilesAreWithinABucket() {
+        var histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.percentile(50));
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        Assertions.assertEquals(1000, histogram.count());
+        Assertions.assertEquals(1_000_000, histogram.max());
+        long p50 = histogram.percentile(50);
+        Assertions.assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, Long.toString(p50));
+        long p99 = histogram.percentile(99);
+        Assertions.assertTrue(p99 >= 990_000 && p99 <= 1_000_000, Long.toString(p99));
+        Assertions.assertEquals(1_000_000, histogram.percentile(100));
+
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.count());
+        Assertions.assertEquals(0, histogram.max());
+    }
+
+    @Test
+    void metricsRecordOnlyWhileEnabled() {
+        boolean wasEnabled = Metrics.isEnabled();
+        try {
+            Metrics.reset();
+            Metrics.setEnabled(false);
+            Metrics.record(Stage.PARSE, Metrics.start(), 10);
+            Assertions.assertEquals(0, Metrics.histogram(Stage.PARSE).count());
+            Assertions.assertTrue(Metrics.report().contains(":stats on"));
+
+            Metrics.setEnabled(true);
+            Metrics.record(Stage.PARSE, Metrics.start(), 10);
+            Assertions.assertEquals(1, Metrics.histogram(Stage.PARSE).count());
+            Assertions.assertTrue(Metrics.report().contains("parse"));
+        } finally {
+            Metrics.setEnabled(wasEnabled);
+            Metrics.reset();
+        }
+    }
+}